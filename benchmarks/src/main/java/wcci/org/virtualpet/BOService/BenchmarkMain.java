@@ -0,0 +1,27 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+
+/**
+ * Runs the benchmarks with the JMH command line. Unless another format or
+ * file is asked for, the results are written as JSON to
+ * target/jmh-results.json, so runs of different builds can be compared.
+ * Any JMH option can be passed, for example a regex of the benchmarks to run:
+ * java -jar benchmarks/target/benchmarks.jar TickBenchmark -p pets=10000
+ */
+public class BenchmarkMain {
+    private static final String RESULTS = "target/jmh-results.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add(RESULTS);
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
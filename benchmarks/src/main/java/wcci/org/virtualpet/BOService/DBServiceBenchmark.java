@@ -0,0 +1,95 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import wcci.org.virtualpet.Main;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.PetSummary;
+
+/**
+ * Benchmarks of the database reads of DBService against the in memory H2
+ * database of the application, with and without the read-through cache.
+ * The context runs without the web server and the tick is held off, so only
+ * the reads are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DBServiceBenchmark {
+    private static final int PETS = 10_000;
+
+    @Param({ "0", "10000" })
+    public int cacheSize;
+
+    private ConfigurableApplicationContext context;
+    private DBService service;
+    private long[] ids; // sorted, the sequence may leave gaps
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false",
+                        "virtualpet.tick.period-ms=3600000",
+                        "virtualpet.cache.max-size=" + cacheSize,
+                        "virtualpet.cache.ttl-ms=3600000")
+                .run();
+        service = context.getBean(DBService.class);
+        List<PetInterface> pets = new ArrayList<>(PETS);
+        PetType[] types = PetType.values();
+        for (int x = 0; x < PETS; x++) {
+            pets.add(PetFactory.create(types[x % types.length], "Pet" + x, 2 + x % 13));
+        }
+        List<PetInterface> admitted = context.getBean(AdmissionService.class).admitAll(pets);
+        ids = admitted.stream().mapToLong(PetInterface::getId).sorted().toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PetSummary getById() {
+        return service.getById(ids[ThreadLocalRandom.current().nextInt(PETS)]);
+    }
+
+    @Benchmark
+    public Map<Long, PetSummary> getByName() {
+        return service.getByName("Pet" + ThreadLocalRandom.current().nextInt(PETS));
+    }
+
+    /**
+     * A page of 100 entities, loaded and put in the persistence context.
+     */
+    @Benchmark
+    public PetPage getPage() {
+        return service.getPage(ids[ThreadLocalRandom.current().nextInt(PETS - 100)], 100, null);
+    }
+
+    /**
+     * The same page as summaries, read by the scalar projection.
+     */
+    @Benchmark
+    public List<PetSummary> getSummaries() {
+        return service.getSummaries(ids[ThreadLocalRandom.current().nextInt(PETS - 100)], 100, null);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Long, PetInterface> getAll() {
+        return service.getAll();
+    }
+}
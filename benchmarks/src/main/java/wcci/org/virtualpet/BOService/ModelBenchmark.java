@@ -0,0 +1,61 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Benchmarks of a single pet: a passage of time, the care actions, the death
+ * forecast of the lazy mode and a catch-up of many ticks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+    @Param({ "CAT", "DOG", "ROBOTIC_CAT", "ROBOTIC_DOG" })
+    public PetType type;
+
+    private CommonModel pet;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        pet = PetFactory.create(type, "Bench", 5);
+    }
+
+    /**
+     * One tick followed by enough care to undo it, so organic and robotic pets
+     * stay alive for the whole iteration.
+     */
+    @Benchmark
+    public CommonModel tickAndCare() {
+        pet.passageOfTime();
+        pet.feed();
+        pet.heal();
+        pet.feed();
+        for (int x = 0; x < 4; x++) {
+            pet.water();
+        }
+        return pet;
+    }
+
+    @Benchmark
+    public DeathForecast forecastDeath() {
+        return pet.forecastDeath();
+    }
+
+    /**
+     * A new pet brought up 100 ticks in one step, as in a lazy read or a
+     * batched catch-up tick. Includes creating the pet.
+     */
+    @Benchmark
+    public CommonModel advance100() {
+        CommonModel fresh = PetFactory.create(type, "Bench", 5);
+        fresh.advance(100);
+        return fresh;
+    }
+}
@@ -0,0 +1,76 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Benchmarks of the pet registry: lookups alone, and lookups next to writers
+ * on the same segments to show the cost of the lock striping under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+    private static final int PETS = 100_000;
+
+    @Param({ "1", "64" })
+    public int stripes;
+
+    private PetRegistry registry;
+    private CommonModel[] pets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new PetRegistry(stripes, new SimpleMeterRegistry());
+        pets = new CommonModel[PETS];
+        PetType[] types = PetType.values();
+        for (int x = 0; x < PETS; x++) {
+            pets[x] = PetFactory.create(types[x % types.length], "Pet" + x, 5);
+            pets[x].setId(x + 1);
+        }
+        registry.putAll(Arrays.asList(pets));
+    }
+
+    @Benchmark
+    public PetInterface getById() {
+        return registry.getById(ThreadLocalRandom.current().nextInt(PETS) + 1);
+    }
+
+    @Benchmark
+    public List<PetInterface> findByNamePrefix() {
+        return registry.findByNamePrefix("Pet12", 20);
+    }
+
+    @Benchmark
+    public int countByType() {
+        return registry.countByType(PetType.DOG);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public PetInterface mixedRead() {
+        return registry.getById(ThreadLocalRandom.current().nextInt(PETS) + 1);
+    }
+
+    /**
+     * Puts a pet back in its place, the registry ends up unchanged but every
+     * call takes a write lock.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public PetInterface mixedWrite() {
+        return registry.put(pets[ThreadLocalRandom.current().nextInt(PETS)]);
+    }
+}
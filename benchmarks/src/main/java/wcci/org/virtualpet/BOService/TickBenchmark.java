@@ -0,0 +1,75 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Benchmarks of one tick over the whole shelter, eager, batched and lazy.
+ * Pets die within a few dozen ticks, so every measurement is a single tick on
+ * a new population.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TickBenchmark {
+    @Param({ "10000", "1000000" })
+    public int pets;
+
+    private TickEngine engine;
+    private SimulationClock clock;
+    private List<PetInterface> population;
+
+    @Setup(Level.Trial)
+    public void setUpEngine() {
+        engine = new TickEngine(0, 2048);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpPopulation() {
+        clock = new SimulationClock("lazy");
+        population = new ArrayList<>(pets);
+        PetType[] types = PetType.values();
+        for (int x = 0; x < pets; x++) {
+            CommonModel pet = PetFactory.create(types[x % types.length], "Pet" + x, 2 + x % 13);
+            pet.setId(x + 1);
+            clock.start(pet);
+            population.add(pet);
+        }
+        clock.advance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public TickEngine.TickResult eagerTick() {
+        return engine.tick(population);
+    }
+
+    /**
+     * Ten owed ticks run as one batch, as the scheduler does after a stall.
+     */
+    @Benchmark
+    public TickEngine.TickResult batchedTick() {
+        return engine.tick(population, 10);
+    }
+
+    /**
+     * The lazy tick only pays for the pets due to die, none are due on the
+     * first tick, so this is the fixed cost of the tick.
+     */
+    @Benchmark
+    public TickEngine.TickResult lazyExpire() {
+        return engine.expire(clock, pet -> true);
+    }
+}
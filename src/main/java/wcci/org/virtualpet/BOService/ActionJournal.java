@@ -0,0 +1,485 @@
+package wcci.org.virtualpet.BOService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import wcci.org.virtualpet.Enums.CareAction;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Append-only journal of everything that changes the shelter: admissions,
+ * care actions, updates, ticks and removals. The file is written through
+ * memory-mapped segments and forced to disk by a committer thread on a fixed
+ * interval (group commit), so many appends share one fsync.
+ * A tick is logged as one record, the passage of time is deterministic and
+ * is run again for every live pet on replay.
+ * The journal is only replayed correctly when its order is the order things
+ * happened in. Care actions and admissions hold the change lock, shared, from
+ * applying the change until its record is appended. The tick holds the tick
+ * lock, exclusive, from running until its records are appended. The wait for
+ * the disk happens after the lock is released.
+ *
+ * Record layout: int length of the body (0 marks the end of the journal, -1
+ * the end of a segment), int CRC32C of the kind and body, byte kind, then the
+ * body. A record that runs past its segment or fails its checksum was torn by
+ * a crash, the journal ends before it.
+ */
+@Component
+public class ActionJournal {
+    private static final byte ADMIT = 1;
+    private static final byte ACTION = 2;
+    private static final byte UPDATE = 3;
+    private static final byte TICK = 4;
+    private static final byte REMOVE = 5;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int HEADER = 4 + 4 + 1; // length, checksum, kind
+
+    private final boolean enabled;
+    private final Path path;
+    private final long segmentBytes;
+    private final long commitIntervalMs;
+    private final Lock lock = new ReentrantLock();
+    private final Condition committedChanged = lock.newCondition();
+    private final ReentrantReadWriteLock order = new ReentrantReadWriteLock(); // orders the changes against the ticks
+    private final List<MappedByteBuffer> unforced = new ArrayList<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentBase;
+    private volatile long position; // end of the last appended record, written under the lock
+    private long committed; // everything before this position is on disk
+    private Thread committer;
+    private volatile boolean running;
+
+    public ActionJournal(@Value("${virtualpet.journal.enabled:false}") boolean enabled,
+            @Value("${virtualpet.journal.path:data/virtualpet.journal}") String path,
+            @Value("${virtualpet.journal.segment-mb:64}") int segmentMb,
+            @Value("${virtualpet.journal.commit-interval-ms:10}") long commitIntervalMs) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.segmentBytes = segmentMb * 1024L * 1024L;
+        this.commitIntervalMs = commitIntervalMs;
+    }
+
+    /**
+     * @return true when the journal is switched on
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Held shared from applying a care action or admitting pets until the
+     * record is appended, so a tick can not run in between.
+     *
+     * @return the shared side of the journal order lock
+     */
+    public Lock changeLock() {
+        return order.readLock();
+    }
+
+    /**
+     * Held by the tick from running until its records are appended, so no
+     * change is applied during the tick and journaled before it.
+     *
+     * @return the exclusive side of the journal order lock
+     */
+    public Lock tickLock() {
+        return order.writeLock();
+    }
+
+    /**
+     * @return true while a tick holds the tick lock
+     */
+    public boolean isTicking() {
+        return order.isWriteLocked();
+    }
+
+    /**
+     * Logs new pets with their starting vitals, the ids must already be set.
+     *
+     * @param pets the admitted pets
+     * @return the end of the records, see {@link #sync(long)}
+     */
+    public long admitted(Collection<? extends PetInterface> pets) {
+        if (!enabled) {
+            return 0;
+        }
+        long end = 0;
+        for (PetInterface pet : pets) {
+            byte[] name = pet.getName().getBytes(StandardCharsets.UTF_8);
+            int age = pet instanceof CommonModel model ? model.getAge() : 0;
+            long state = pet instanceof CommonModel model ? model.packedState() : 0;
+            end = append(ADMIT, 8 + 1 + 4 + 8 + 2 + name.length, buffer -> {
+                buffer.putLong(pet.getId());
+                buffer.put((byte) pet.getType().ordinal());
+                buffer.putInt(age);
+                buffer.putLong(state);
+                buffer.putShort((short) name.length);
+                buffer.put(name);
+            });
+        }
+        return end;
+    }
+
+    /**
+     * Logs a care action.
+     *
+     * @param id     id of the pet
+     * @param action the action
+     * @return the end of the record, see {@link #sync(long)}
+     */
+    public long action(long id, CareAction action) {
+        if (!enabled) {
+            return 0;
+        }
+        return append(ACTION, 8 + 1, buffer -> {
+            buffer.putLong(id);
+            buffer.put((byte) action.ordinal());
+        });
+    }
+
+    /**
+     * Logs a new name and age.
+     *
+     * @param pet the updated pet
+     * @return the end of the record, see {@link #sync(long)}
+     */
+    public long updated(CommonModel pet) {
+        if (!enabled) {
+            return 0;
+        }
+        byte[] name = pet.getName().getBytes(StandardCharsets.UTF_8);
+        return append(UPDATE, 8 + 4 + 2 + name.length, buffer -> {
+            buffer.putLong(pet.getId());
+            buffer.putInt(pet.getAge());
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        });
+    }
+
+    /**
+     * Logs one passage of time for every live pet.
+     *
+     * @param tick number of the tick
+     */
+    public void tick(long tick) {
+        if (!enabled) {
+            return;
+        }
+        append(TICK, 8, buffer -> buffer.putLong(tick));
+    }
+
+    /**
+     * Logs that a pet left the shelter.
+     *
+     * @param id id of the pet
+     * @return the end of the record, see {@link #sync(long)}
+     */
+    public long removed(long id) {
+        if (!enabled) {
+            return 0;
+        }
+        return append(REMOVE, 8, buffer -> buffer.putLong(id));
+    }
+
+    /**
+     * Waits until the records before a position are on disk, one group commit
+     * serves every waiting caller.
+     *
+     * @param end the end of the records, returned when they were appended
+     */
+    public void sync(long end) {
+        if (!enabled || end == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (committed < end && running) {
+                committedChanged.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the end of the journal, recorded by snapshots to know where to
+     *         resume the replay
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Reads the journal from a position and hands every record to the visitor.
+     *
+     * @param from    position to start at, 0 for the whole journal
+     * @param visitor receives each record
+     * @return number of records read
+     */
+    public long replay(long from, Visitor visitor) {
+        if (!enabled) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            open();
+            long[] count = new long[1];
+            scan(from, (kind, buffer, end) -> {
+                read(kind, buffer, end, visitor);
+                count[0]++;
+            });
+            return count[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Walks the records from a position, mapping each segment once.
+     *
+     * @return the position of the end of the journal
+     */
+    private long scan(long from, RecordReader reader) {
+        long at = from;
+        MappedByteBuffer buffer = map(at - at % segmentBytes);
+        buffer.position((int) (at % segmentBytes));
+        while (true) {
+            int length = buffer.remaining() < 4 ? END_OF_SEGMENT : buffer.getInt();
+            if (length == 0) {
+                return at;
+            }
+            if (length == END_OF_SEGMENT) {
+                at = at - at % segmentBytes + segmentBytes;
+                buffer = map(at);
+                continue;
+            }
+            int start = (int) (at % segmentBytes);
+            if (length < 0 || length > buffer.remaining() - 4 - 1) {
+                return at; // torn length
+            }
+            int checksum = buffer.getInt();
+            if (checksum != checksum(buffer, start + 8, 1 + length)) {
+                return at; // torn record
+            }
+            byte kind = buffer.get();
+            if (reader != null) {
+                reader.read(kind, buffer, at + HEADER + length);
+            }
+            buffer.position(start + HEADER + length);
+            at += HEADER + length;
+        }
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(from, length));
+        return (int) crc.getValue();
+    }
+
+    private void read(byte kind, MappedByteBuffer buffer, long end, Visitor visitor) {
+        switch (kind) {
+            case ADMIT: {
+                long id = buffer.getLong();
+                PetType type = PetType.values()[buffer.get()];
+                int age = buffer.getInt();
+                long state = buffer.getLong();
+                visitor.admitted(id, type, age, readString(buffer), state);
+                break;
+            }
+            case ACTION: {
+                long id = buffer.getLong();
+                visitor.action(id, CareAction.values()[buffer.get()], end);
+                break;
+            }
+            case UPDATE: {
+                long id = buffer.getLong();
+                int age = buffer.getInt();
+                visitor.updated(id, readString(buffer), age);
+                break;
+            }
+            case TICK: {
+                visitor.tick(buffer.getLong());
+                break;
+            }
+            case REMOVE: {
+                visitor.removed(buffer.getLong());
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record " + kind);
+        }
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends one record, {@link #sync(long)} waits for the group commit that
+     * puts it on disk.
+     *
+     * @return the end of the record
+     */
+    private long append(byte kind, int length, Consumer<MappedByteBuffer> body) {
+        lock.lock();
+        try {
+            open();
+            int size = HEADER + length;
+            if (segment.remaining() < size + 4) { // keep room for the end marker
+                segment.putInt(END_OF_SEGMENT);
+                unforced.add(segment);
+                segmentBase += segmentBytes;
+                segment = map(segmentBase);
+            }
+            int start = segment.position();
+            segment.putInt(length);
+            segment.putInt(0); // checksum, once the body is written
+            segment.put(kind);
+            body.accept(segment);
+            segment.putInt(start + 4, checksum(segment, start + 8, 1 + length));
+            segment.putInt(segment.position(), 0); // ends the journal here, over a torn record left by a crash
+            position = segmentBase + segment.position();
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens the file on first use and moves to the end of the existing records.
+     */
+    private void open() {
+        if (channel != null) {
+            return;
+        }
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            position = scan(0, null);
+            committed = position;
+            segmentBase = position - position % segmentBytes;
+            segment = map(segmentBase);
+            segment.position((int) (position - segmentBase));
+            running = true;
+            committer = Thread.ofPlatform().daemon().name("journal-committer").start(this::commitLoop);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open the journal " + path, e);
+        }
+    }
+
+    private MappedByteBuffer map(long base) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, base, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not map the journal " + path, e);
+        }
+    }
+
+    /**
+     * Forces the appended records to disk on a fixed interval and wakes the
+     * appenders that wait for them.
+     */
+    private void commitLoop() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(commitIntervalMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            commit();
+        }
+    }
+
+    private void commit() {
+        List<MappedByteBuffer> toForce;
+        long end;
+        lock.lock();
+        try {
+            if (committed == position) {
+                return;
+            }
+            end = position;
+            toForce = new ArrayList<>(unforced);
+            toForce.add(segment);
+            unforced.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (MappedByteBuffer buffer : toForce) {
+            buffer.force(); // outside the lock, appends carry on meanwhile
+        }
+        lock.lock();
+        try {
+            committed = Math.max(committed, end);
+            committedChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        running = false;
+        committer.interrupt();
+        commit();
+        lock.lock();
+        try {
+            committedChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+    }
+
+    private interface RecordReader {
+        void read(byte kind, MappedByteBuffer buffer, long end);
+    }
+
+    /**
+     * Receives the records of the journal on replay
+     */
+    public interface Visitor {
+        /**
+         * @param state the packed starting vitals, 0 keeps those of a new pet
+         */
+        void admitted(long id, PetType type, int age, String name, long state);
+
+        /**
+         * @param end the end of the record, snapshots tell by it whether a
+         *            copy already holds the action
+         */
+        void action(long id, CareAction action, long end);
+
+        void updated(long id, String name, int age);
+
+        void tick(long tick);
+
+        void removed(long id);
+    }
+}
@@ -0,0 +1,68 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * Admits new pets into the shelter, they are saved to the database, logged
+ * to the journal and then registered with the scheduled task.
+ */
+@Service
+public class AdmissionService {
+    @Resource
+    private DBService service;
+
+    @Resource
+    private ScheduledTask task;
+
+    @Resource
+    private ActionJournal journal;
+
+    public AdmissionService(DBService service, ScheduledTask task, ActionJournal journal) {
+        this.service = service;
+        this.task = task;
+        this.journal = journal;
+    }
+
+    /**
+     * Admits one pet.
+     *
+     * @param pet the new pet
+     * @return the pet with its id set
+     */
+    public PetInterface admit(PetInterface pet) {
+        admitAll(List.of(pet));
+        return pet;
+    }
+
+    /**
+     * Admits a batch of pets. The pets are inserted with batched inserts
+     * grouped by pet type, and registered with the scheduled task in one call.
+     * No tick runs between journaling the pets and registering them.
+     *
+     * @param pets the new pets
+     * @return the pets with their ids set
+     */
+    public List<PetInterface> admitAll(Collection<? extends PetInterface> pets) {
+        EnumMap<PetType, List<PetInterface>> byType = new EnumMap<>(PetType.class);
+        for (PetInterface pet : pets) {
+            byType.computeIfAbsent(pet.getType(), type -> new ArrayList<>()).add(pet);
+        }
+        service.insertAll(byType);
+        List<PetInterface> admitted = new ArrayList<>(pets);
+        Lock order = journal.changeLock();
+        order.lock();
+        try {
+            journal.admitted(admitted);
+            task.admitAll(admitted);
+        } finally {
+            order.unlock();
+        }
+        return admitted;
+    }
+}
@@ -0,0 +1,33 @@
+package wcci.org.virtualpet.BOService;
+
+import wcci.org.virtualpet.Models.PetSummary;
+
+/**
+ * Outcome of a bulk care action for one pet.
+ *
+ * @param id     id of the pet
+ * @param status what happened to the pet
+ * @param pet    the pet after the action, null when it was not found
+ */
+public record CareOutcome(long id, Status status, PetSummary pet) {
+
+    /**
+     * What a bulk care action did to a pet
+     */
+    public enum Status {
+        /**
+         * The action was applied.
+         */
+        CARED,
+
+        /**
+         * The pet had died, the action changed nothing.
+         */
+        DEAD,
+
+        /**
+         * There is no live pet with this id.
+         */
+        NOT_FOUND
+    }
+}
@@ -1,9 +1,23 @@
 package wcci.org.virtualpet.BOService;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import wcci.org.virtualpet.Enums.PetType;
 import wcci.org.virtualpet.Interfaces.PetInterface;
 import wcci.org.virtualpet.Models.*;
@@ -11,6 +25,12 @@ import wcci.org.virtualpet.Repositories.*;
 
 @Service
 class DBService {
+    private static final String ORGANIC_UPDATE = "update pets set health = ?, happiness = ?, hungery = ?, thirst = ?, death_by = ? where id = ?";
+    private static final String ROBOTIC_UPDATE = "update pets set oil_level = ?, power_level = ?, death_by = ? where id = ?";
+    private static final String DELETE = "delete from pets where id = ?";
+    private static final String RESTORE = "insert into pets (id, name, type, age, death_by, health, happiness, hungery, thirst, oil_level, power_level) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int ALLOCATION_SIZE = 500; // must match the sequence generator of CommonModel
+
     @Resource
     private CatRepository cats;
 
@@ -23,148 +43,191 @@ class DBService {
     @Resource
     private RoboticDogRepository roboDogs;
 
+    @Resource
+    private PetRepository pets;
+
+    @Resource
+    private JdbcTemplate jdbc;
+
+    @Resource
+    private IdDirectory directory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int batchSize;
+    private final PetCache<Long, PetSummary> idCache; // summaries, callers can not change a cached pet
+    private final PetCache<String, Map<Long, PetSummary>> nameCache;
+    private final PetCache<PetType, Map<Long, PetSummary>> typeCache;
+    private final Timer updateTimer; // repository calls are timed by Spring Data, the JDBC batches here
+    private final Timer insertTimer;
+    private final Timer restoreTimer;
+
     public DBService(CatRepository cats, DogRepository dogs, RoboticCatRepository roboCats,
-            RoboticDogRepository roboDogs, ScheduledTask task) {
+            RoboticDogRepository roboDogs, PetRepository pets, JdbcTemplate jdbc, IdDirectory directory,
+            MeterRegistry meters,
+            @Value("${virtualpet.write-behind.batch-size:500}") int batchSize,
+            @Value("${virtualpet.cache.max-size:10000}") int cacheSize,
+            @Value("${virtualpet.cache.ttl-ms:30000}") long cacheTtlMs) {
         this.cats = cats;
         this.dogs = dogs;
         this.roboCats = roboCats;
         this.roboDogs = roboDogs;
+        this.pets = pets;
+        this.jdbc = jdbc;
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.idCache = new PetCache<>("byId", cacheSize, cacheTtlMs, meters);
+        this.nameCache = new PetCache<>("byName", cacheSize, cacheTtlMs, meters);
+        this.typeCache = new PetCache<>("byType", PetType.values().length, cacheTtlMs, meters);
+        this.updateTimer = batchTimer("updateVitals", meters);
+        this.insertTimer = batchTimer("insertAll", meters);
+        this.restoreTimer = batchTimer("restoreAll", meters);
     }
 
-    public Map<Long, PetInterface> getAll() {
-        HashMap<Long, PetInterface> map = new HashMap<>();
-        for (PetType petType : PetType.values()) {
-            switch (petType) {
-                case DOG: {
-                    List<DogModel> dogRepo = dogs.findAll();
-                    for (DogModel dog : dogRepo) {
-                        map.put(dog.getId(), dog);
-                    }
-                    break;
-                }
-                case CAT: {
-                    List<CatModel> catRepo = cats.findAll();
-                    for (CatModel cat : catRepo) {
-                        map.put(cat.getId(), cat);
-                    }
-                    break;
-                }
-                case ROBOTIC_DOG: {
-                    List<RoboticDogModel> dogRepo = roboDogs.findAll();
-                    for (RoboticDogModel dog : dogRepo) {
-                        map.put(dog.getId(), dog);
-                    }
-                    break;
-                }
-
-                case ROBOTIC_CAT: {
-                    List<RoboticCatModel> catRepo = roboCats.findAll();
-                    for (RoboticCatModel cat : catRepo) {
-                        map.put(cat.getId(), cat);
-                    }
-                    break;
-                }
+    private static Timer batchTimer(String operation, MeterRegistry meters) {
+        return Timer.builder("virtualpet.db.batch")
+                .description("Time to write one batch of pets")
+                .tag("operation", operation)
+                .register(meters);
+    }
 
-                default:
-                    break;
-            }
+    /**
+     * Rebuilds the id directory from the ids stored in the pets table.
+     */
+    @PostConstruct
+    public void rebuildDirectory() {
+        directory.clear();
+        for (Object[] row : pets.findAllIdsAndTypes()) {
+            directory.put((Long) row[0], (PetType) row[1]);
         }
-        return map;
     }
 
-    public PetInterface getById(long id) {
-        PetInterface result = null;
+    public Map<Long, PetInterface> getAll() {
+        return toMap(pets.findAll());
+    }
+
+    /**
+     * Reads one page of pets ordered by id. The cursor is the id of the last
+     * pet of the previous page, so every page is one index range scan however
+     * deep it is.
+     *
+     * @param afterId cursor from the previous page, null for the first page
+     * @param size    most pets on the page
+     * @param petType only pets of this type, null for every type
+     * @return the page and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public PetPage getPage(Long afterId, int size, PetType petType) {
+        long cursor = afterId == null ? 0 : afterId;
+        List<CommonModel> list = petType == null
+                ? pets.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(size))
+                : pets.findByTypeAndIdGreaterThanOrderByIdAsc(petType, cursor, Limit.of(size));
+        Long nextCursor = list.size() < size ? null : list.get(list.size() - 1).getId();
+        return new PetPage(new ArrayList<>(list), nextCursor);
+    }
 
-        Optional<CatModel> optCat = cats.findById(id);
-        if (!optCat.isEmpty()) {
-            result = optCat.get();
-        }
-        if (result == null) {
-            Optional<DogModel> optDog = dogs.findById(id);
-            if (!optDog.isEmpty()) {
-                result = optDog.get();
-            }
-        }
-        if (result == null) {
-            Optional<RoboticDogModel> optRoboDog = roboDogs.findById(id);
-            if (!optRoboDog.isEmpty()) {
-                result = optRoboDog.get();
-            }
-        }
-        if (result == null) {
-            Optional<RoboticCatModel> optRoboCat = roboCats.findById(id);
-            if (!optRoboCat.isEmpty()) {
-                result = optRoboCat.get();
-            }
+    /**
+     * Reads one page of pet summaries ordered by id. The summaries come from a
+     * scalar query, so no entities are loaded or dirty checked.
+     *
+     * @param afterId cursor from the previous page, null for the first page
+     * @param size    most summaries on the page
+     * @param petType only pets of this type, null for every type
+     * @return the summaries
+     */
+    @Transactional(readOnly = true)
+    public List<PetSummary> getSummaries(Long afterId, int size, PetType petType) {
+        long cursor = afterId == null ? 0 : afterId;
+        List<Object[]> rows = petType == null
+                ? pets.findSummaryRows(cursor, size)
+                : pets.findSummaryRowsByType(petType.name(), cursor, size);
+        List<PetSummary> list = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            list.add(PetSummary.fromRow(row));
         }
-        return result;
+        return list;
     }
 
-    public Map<Long, PetInterface> getByName(String name) {
-        Map<Long, PetInterface> result = new HashMap<Long, PetInterface>();
+    /**
+     * Streams every pet ordered by id, fetching one page at a time so only one
+     * page is held in memory. The stream does not need an open transaction.
+     *
+     * @param pageSize number of pets fetched per page
+     * @return lazy stream of the pets
+     */
+    public Stream<PetInterface> streamAll(int pageSize) {
+        Iterator<PetInterface> iterator = new Iterator<>() {
+            private Iterator<PetInterface> page = Collections.emptyIterator();
+            private Long cursor = 0L;
 
-        List<CatModel> listCat = cats.findByName(name);
-        if (listCat != null) {
-            for (CatModel cat : listCat) {
-                result.put(cat.getId(), cat);
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && cursor != null) {
+                    PetPage next = getPage(cursor, pageSize, null);
+                    page = next.pets().iterator();
+                    cursor = next.nextCursor();
+                }
+                return page.hasNext();
             }
-        }
 
-        List<DogModel> listDog = dogs.findByName(name);
-        if (listDog != null) {
-            for (DogModel dog : listDog) {
-                result.put(dog.getId(), dog);
-            }
-        }
-        List<RoboticCatModel> listRoboCat = roboCats.findByName(name);
-        if (listRoboCat != null) {
-            for (RoboticCatModel cat : listRoboCat) {
-                result.put(cat.getId(), cat);
+            @Override
+            public PetInterface next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
             }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Visits every pet ordered by id over one database cursor. Each pet is
+     * detached after the action, so the persistence context stays empty.
+     *
+     * @param action the action to run for each pet
+     */
+    @Transactional(readOnly = true)
+    public void forEachPet(Consumer<PetInterface> action) {
+        try (Stream<CommonModel> stream = pets.streamAllOrderById()) {
+            stream.forEach(pet -> {
+                action.accept(pet);
+                entityManager.detach(pet);
+            });
         }
-        List<RoboticDogModel> listRoboDog = roboDogs.findByName(name);
-        if (listRoboDog != null) {
-            for (RoboticDogModel dog : listRoboDog) {
-                result.put(dog.getId(), dog);
-            }
+    }
+
+    public PetSummary getById(long id) {
+        if (directory.get(id) == null) {
+            return null;
         }
-        return result;
+        return idCache.get(id, key -> pets.findById(key).map(PetSummary::of).orElse(null));
     }
 
-    public Map<Long, PetInterface> getByPetType(PetType petType) {
-        Map<Long, PetInterface> result = new HashMap<Long, PetInterface>();
-        switch (petType) {
-            case CAT: {
-                List<CatModel> catRepo = cats.findAll();
-                for (CatModel cat : catRepo) {
-                    result.put(cat.getId(), cat);
-                }
-                break;
+    public Map<Long, PetSummary> getByName(String name) {
+        return nameCache.get(name, key -> toSummaries(pets.findByName(key)));
+    }
 
-            }
-            case DOG: {
-                List<DogModel> dogRepo = dogs.findAll();
-                for (DogModel dog : dogRepo) {
-                    result.put(dog.getId(), dog);
-                }
-                break;
-            }
-            case ROBOTIC_CAT: {
-                List<RoboticCatModel> catRepo = roboCats.findAll();
-                for (RoboticCatModel cat : catRepo) {
-                    result.put(cat.getId(), cat);
-                }
-                break;
-            }
-            case ROBOTIC_DOG: {
-                List<RoboticDogModel> dogRepo = roboDogs.findAll();
-                for (RoboticDogModel dog : dogRepo) {
-                    result.put(dog.getId(), dog);
-                }
-                break;
-            }
+    public Map<Long, PetSummary> getByPetType(PetType petType) {
+        return typeCache.get(petType, key -> toSummaries(pets.findByType(key)));
+    }
+
+    /**
+     * Counts the stored pets of every type with one grouped query.
+     *
+     * @return number of pets per type
+     */
+    public Map<PetType, Long> countByPetType() {
+        EnumMap<PetType, Long> counts = new EnumMap<>(PetType.class);
+        for (PetType petType : PetType.values()) {
+            counts.put(petType, 0L);
         }
-        return result;
+        for (Object[] row : pets.countGroupByType()) {
+            counts.put((PetType) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
     public void UpdatePet(PetInterface pet) {
@@ -187,30 +250,238 @@ class DBService {
                 break;
             }
         }
+        directory.put(pet.getId(), petType);
+        invalidate(pet.getId(), petType);
     }
 
-    public void RemovePet(Long id) {
-        PetInterface pet = getById(id);
-        PetType petType = pet.getType();
-        switch (petType) {
-            case CAT: {
-                cats.delete((CatModel) pet);
-                break;
+    /**
+     * Deletes a pet.
+     *
+     * @param id id of the pet
+     * @return number of rows deleted, 0 when there was no such pet
+     */
+    public int RemovePet(Long id) {
+        PetType petType = directory.get(id);
+        if (petType == null) {
+            return 0;
+        }
+        int deleted = jdbc.update(DELETE, id);
+        directory.remove(id);
+        invalidate(id, petType);
+        return deleted;
+    }
+
+    /**
+     * Drops the cached lookups that can contain the given pet.
+     */
+    private void invalidate(long id, PetType petType) {
+        idCache.invalidate(id);
+        typeCache.invalidate(petType);
+        nameCache.invalidateAll();
+    }
+
+    /**
+     * Writes the vitals of many pets, one batched update statement per pet type
+     * in a single transaction.
+     *
+     * @param byType the pets to write grouped by their type
+     */
+    @Transactional
+    public void updateVitals(Map<PetType, List<PetInterface>> byType) {
+        Timer.Sample sample = Timer.start();
+        for (Map.Entry<PetType, List<PetInterface>> entry : byType.entrySet()) {
+            switch (entry.getKey()) {
+                case CAT:
+                case DOG: {
+                    updateOrganic(entry.getValue());
+                    break;
+                }
+                case ROBOTIC_CAT:
+                case ROBOTIC_DOG: {
+                    updateRobotic(entry.getValue());
+                    break;
+                }
             }
-            case DOG: {
-                dogs.delete((DogModel) pet);
-                break;
+            for (PetInterface pet : entry.getValue()) {
+                idCache.invalidate(pet.getId());
             }
-            case ROBOTIC_CAT: {
-               roboCats.delete((RoboticCatModel)pet);
-                break;
+            typeCache.invalidate(entry.getKey());
+        }
+        nameCache.invalidateAll();
+        sample.stop(updateTimer);
+    }
+
+    private void updateOrganic(List<PetInterface> pets) {
+        jdbc.batchUpdate(ORGANIC_UPDATE, pets, batchSize, (ps, item) -> {
+            PetModel pet = (PetModel) item;
+            long state = pet.packedState(); // the vitals and the cause of one update
+            ps.setInt(1, PetModel.health(state));
+            ps.setInt(2, PetModel.happiness(state));
+            ps.setInt(3, PetModel.hungery(state));
+            ps.setInt(4, PetModel.thirst(state));
+            ps.setInt(5, CommonModel.causeOf(state).ordinal());
+            ps.setLong(6, pet.getId());
+        });
+    }
+
+    private void updateRobotic(List<PetInterface> pets) {
+        jdbc.batchUpdate(ROBOTIC_UPDATE, pets, batchSize, (ps, item) -> {
+            RoboticPetModel pet = (RoboticPetModel) item;
+            long state = pet.packedState();
+            ps.setInt(1, RoboticPetModel.oilLevel(state));
+            ps.setInt(2, RoboticPetModel.powerLevel(state));
+            ps.setInt(3, CommonModel.causeOf(state).ordinal());
+            ps.setLong(4, pet.getId());
+        });
+    }
+
+    /**
+     * Inserts many new pets in a single transaction. Each pet type is saved in
+     * chunks of the batch size, so Hibernate sends batched inserts and the
+     * persistence context is cleared after every chunk. The ids are added to
+     * the directory once the transaction commits.
+     *
+     * @param byType the new pets grouped by their type
+     */
+    @Transactional
+    public void insertAll(Map<PetType, List<PetInterface>> byType) {
+        Timer.Sample sample = Timer.start();
+        for (Map.Entry<PetType, List<PetInterface>> entry : byType.entrySet()) {
+            List<PetInterface> pets = entry.getValue();
+            for (int from = 0; from < pets.size(); from += batchSize) {
+                List<PetInterface> chunk = pets.subList(from, Math.min(pets.size(), from + batchSize));
+                switch (entry.getKey()) {
+                    case CAT: {
+                        cats.saveAll(cast(chunk, CatModel.class));
+                        break;
+                    }
+                    case DOG: {
+                        dogs.saveAll(cast(chunk, DogModel.class));
+                        break;
+                    }
+                    case ROBOTIC_CAT: {
+                        roboCats.saveAll(cast(chunk, RoboticCatModel.class));
+                        break;
+                    }
+                    case ROBOTIC_DOG: {
+                        roboDogs.saveAll(cast(chunk, RoboticDogModel.class));
+                        break;
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
             }
-            case ROBOTIC_DOG: {
-                roboDogs.delete((RoboticDogModel)pet);
-                break;
+        }
+        List<PetInterface> inserted = new ArrayList<>();
+        byType.values().forEach(inserted::addAll);
+        afterCommit(() -> {
+            for (PetInterface pet : inserted) {
+                directory.put(pet.getId(), pet.getType());
+            }
+            for (PetType petType : byType.keySet()) {
+                typeCache.invalidate(petType);
+            }
+            nameCache.invalidateAll();
+        });
+        sample.stop(insertTimer);
+    }
+
+    /**
+     * Inserts pets which keep the id they had before, as they are restored
+     * after a restart. The sequence is moved past the highest id so new pets
+     * do not collide with the restored ones. The ids are added to the directory
+     * once the transaction commits.
+     *
+     * @param restored the pets to insert
+     */
+    @Transactional
+    public void restoreAll(Collection<? extends PetInterface> restored) {
+        if (restored.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        jdbc.batchUpdate(RESTORE, restored, batchSize, (ps, item) -> {
+            CommonModel pet = (CommonModel) item;
+            ps.setLong(1, pet.getId());
+            ps.setString(2, pet.getName());
+            ps.setString(3, pet.getType().name());
+            ps.setInt(4, pet.getAge());
+            long state = pet.packedState();
+            ps.setInt(5, CommonModel.causeOf(state).ordinal());
+            if (pet instanceof PetModel) {
+                ps.setInt(6, PetModel.health(state));
+                ps.setInt(7, PetModel.happiness(state));
+                ps.setInt(8, PetModel.hungery(state));
+                ps.setInt(9, PetModel.thirst(state));
+                ps.setObject(10, null);
+                ps.setObject(11, null);
+            } else {
+                ps.setObject(6, null);
+                ps.setObject(7, null);
+                ps.setObject(8, null);
+                ps.setObject(9, null);
+                ps.setInt(10, RoboticPetModel.oilLevel(state));
+                ps.setInt(11, RoboticPetModel.powerLevel(state));
+            }
+        });
+        long maxId = 0;
+        for (PetInterface pet : restored) {
+            maxId = Math.max(maxId, pet.getId());
+        }
+        // the pooled optimizer hands out the block below the value it reads
+        jdbc.execute("alter sequence MY_SEQ restart with " + (maxId + ALLOCATION_SIZE + 1));
+        List<PetInterface> inserted = List.copyOf(restored);
+        afterCommit(() -> {
+            for (PetInterface pet : inserted) {
+                directory.put(pet.getId(), pet.getType());
             }
+            idCache.invalidateAll();
+            typeCache.invalidateAll();
+            nameCache.invalidateAll();
+        });
+        sample.stop(restoreTimer);
+    }
+
+    /**
+     * Runs a task once the current transaction commits, so a rollback leaves
+     * no ids in the directory for rows that were never stored. Without a
+     * transaction the task runs at once.
+     */
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
 
+    private static Map<Long, PetInterface> toMap(List<CommonModel> list) {
+        Map<Long, PetInterface> map = new HashMap<>();
+        for (CommonModel pet : list) {
+            map.put(pet.getId(), pet);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static Map<Long, PetSummary> toSummaries(List<CommonModel> list) {
+        Map<Long, PetSummary> map = new HashMap<>();
+        for (CommonModel pet : list) {
+            map.put(pet.getId(), PetSummary.of(pet));
+        }
+        return Collections.unmodifiableMap(map); // the map is shared through the cache
+    }
+
+    private static <T> List<T> cast(List<PetInterface> pets, Class<T> type) {
+        List<T> list = new ArrayList<>(pets.size());
+        for (PetInterface pet : pets) {
+            list.add(type.cast(pet));
+        }
+        return list;
     }
 
 }
@@ -0,0 +1,169 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Hierarchical timing wheel of predicted deaths.
+ * Level 0 has one slot per tick for the next 64 ticks, every level above
+ * covers 64 times the range of the one below. When the clock reaches the
+ * start of a slot of a higher level, its pets are spread over the levels
+ * below. Pets further away than the top level wait in an overflow list.
+ * Scheduling and expiring are O(1) per pet, so a tick only pays for the pets
+ * due on it.
+ *
+ * A pet is not removed when its death moves, it is scheduled again and the
+ * old entry is dropped when its slot comes up, as its tick no longer matches
+ * the death tick of the pet.
+ */
+public class DeathWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final List<List<Entry>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final List<Entry> overflow = new ArrayList<>();
+    private final List<Entry> late = new ArrayList<>(); // scheduled at or before the current tick
+    private final Lock lock = new ReentrantLock();
+    private long current; // every tick up to this one was expired
+    private int size;
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param start the current tick
+     */
+    public DeathWheel(long start) {
+        for (int x = 0; x < LEVELS * SLOTS; x++) {
+            slots.add(new ArrayList<>());
+        }
+        this.current = start;
+    }
+
+    /**
+     * Schedules a pet at its predicted death tick, nothing is scheduled for a
+     * pet that never dies.
+     *
+     * @param pet the pet
+     */
+    public void schedule(CommonModel pet) {
+        long tick = pet.getDeathTick();
+        if (tick == Long.MAX_VALUE) {
+            return;
+        }
+        lock.lock();
+        try {
+            place(new Entry(pet, tick), false);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the wheel up to a tick and collects the pets due by then, each
+     * pet once. Entries whose pet was rescheduled since are dropped.
+     *
+     * @param now the new tick
+     * @return the pets whose predicted death has come
+     */
+    public List<CommonModel> advanceTo(long now) {
+        List<CommonModel> due = new ArrayList<>();
+        Set<CommonModel> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        lock.lock();
+        try {
+            collect(late, due, seen);
+            late.clear();
+            while (current < now) {
+                current++;
+                cascade();
+                List<Entry> slot = slots.get((int) (current & MASK));
+                collect(slot, due, seen);
+                slot.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return due;
+    }
+
+    /**
+     * @return number of entries in the wheel, rescheduled ones included
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Spreads the slots of the higher levels which start at the current tick
+     * over the levels below, the overflow when the top level wraps.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((current & ((1L << (BITS * level)) - 1)) != 0) {
+                return; // the lower bits did not wrap, higher levels do not either
+            }
+            List<Entry> slot = slots.get(level * SLOTS + (int) ((current >>> (BITS * level)) & MASK));
+            List<Entry> moved = new ArrayList<>(slot);
+            slot.clear();
+            for (Entry entry : moved) {
+                place(entry, true);
+            }
+        }
+        if ((current & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+            List<Entry> moved = new ArrayList<>(overflow);
+            overflow.clear();
+            for (Entry entry : moved) {
+                place(entry, true);
+            }
+        }
+    }
+
+    /**
+     * Puts an entry in the slot for its tick. The slot of the current tick is
+     * only still open while cascading, afterwards the entry waits in the late
+     * list for the next call.
+     */
+    private void place(Entry entry, boolean cascading) {
+        long delta = entry.tick() - current;
+        if (delta < 0 || (delta == 0 && !cascading)) {
+            late.add(entry);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                slots.get(level * SLOTS + (int) ((entry.tick() >>> (BITS * level)) & MASK)).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    /**
+     * Moves the entries still matching the death tick of their pet to the due
+     * list. A pet whose death moved away and back has two matching entries,
+     * it is only collected once.
+     */
+    private void collect(List<Entry> entries, List<CommonModel> due, Set<CommonModel> seen) {
+        for (Entry entry : entries) {
+            size--;
+            if (entry.pet().getDeathTick() == entry.tick() && seen.add(entry.pet())) {
+                due.add(entry.pet());
+            }
+        }
+    }
+
+    /**
+     * A pet and the tick it was scheduled at
+     */
+    private record Entry(CommonModel pet, long tick) {
+    }
+}
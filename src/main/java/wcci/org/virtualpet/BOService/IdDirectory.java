@@ -0,0 +1,69 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+import wcci.org.virtualpet.Enums.PetType;
+
+/**
+ * Directory of every stored pet id and its pet type, so a lookup by id only
+ * has to ask the one repository that holds the pet.
+ */
+@Component
+public class IdDirectory {
+    private final Map<Long, PetType> types = new ConcurrentHashMap<>();
+
+    /**
+     * Records the type of a pet.
+     *
+     * @param id   id of the pet
+     * @param type type of the pet
+     */
+    public void put(long id, PetType type) {
+        types.put(id, type);
+    }
+
+    /**
+     * Records the type of many pets.
+     *
+     * @param ids  ids of the pets
+     * @param type type of the pets
+     */
+    public void putAll(Collection<Long> ids, PetType type) {
+        for (Long id : ids) {
+            types.put(id, type);
+        }
+    }
+
+    /**
+     * @param id id of the pet
+     * @return the type of the pet or null when the id is unknown
+     */
+    public PetType get(long id) {
+        return types.get(id);
+    }
+
+    /**
+     * Forgets a pet.
+     *
+     * @param id id of the pet
+     */
+    public void remove(long id) {
+        types.remove(id);
+    }
+
+    /**
+     * Forgets every pet.
+     */
+    public void clear() {
+        types.clear();
+    }
+
+    /**
+     * @return number of known pets
+     */
+    public int size() {
+        return types.size();
+    }
+}
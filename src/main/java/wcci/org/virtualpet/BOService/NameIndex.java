@@ -0,0 +1,162 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Case insensitive index of pet names for substring and prefix searches.
+ * Every name is indexed by all of its n-grams of one to three characters, so
+ * a query of up to three characters is answered straight from its posting
+ * set. Longer queries walk the smallest posting set of their trigrams and
+ * check each candidate. Prefix searches use a sorted map of the names.
+ */
+public class NameIndex {
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> sortedNames = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> names = new ConcurrentHashMap<>(); // id -> lower case name
+
+    /**
+     * Adds a name to the index, replacing the name the id had before.
+     *
+     * @param id   id of the pet
+     * @param name name of the pet
+     */
+    public void add(long id, String name) {
+        String key = normalize(name);
+        String previous = names.put(id, key);
+        if (previous != null) {
+            if (previous.equals(key)) {
+                return;
+            }
+            unindex(id, previous);
+        }
+        for (String gram : gramsOf(key)) {
+            addTo(grams, gram, id);
+        }
+        addTo(sortedNames, key, id);
+    }
+
+    /**
+     * Removes a pet from the index.
+     *
+     * @param id id of the pet
+     */
+    public void remove(long id) {
+        String previous = names.remove(id);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+    }
+
+    /**
+     * Finds the pets whose name contains the query.
+     *
+     * @param query the text to look for, case is ignored
+     * @param limit most ids returned
+     * @return ids of the matching pets
+     */
+    public List<Long> findContaining(String query, int limit) {
+        String key = normalize(query);
+        List<Long> result = new ArrayList<>();
+        if (key.isEmpty()) {
+            return result;
+        }
+        if (key.length() <= GRAM) {
+            addUpTo(result, grams.getOrDefault(key, Collections.emptySet()), limit);
+            return result;
+        }
+        Set<Long> smallest = null;
+        for (int x = 0; x + GRAM <= key.length(); x++) {
+            Set<Long> posting = grams.get(key.substring(x, x + GRAM));
+            if (posting == null) {
+                return result; // one trigram is missing, nothing can match
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        for (Long id : smallest) {
+            if (result.size() >= limit) {
+                break;
+            }
+            String name = names.get(id);
+            if (name != null && name.contains(key)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the pets whose name starts with the prefix, in name order.
+     *
+     * @param prefix the start of the name, case is ignored
+     * @param limit  most ids returned
+     * @return ids of the matching pets
+     */
+    public List<Long> findByPrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        List<Long> result = new ArrayList<>();
+        for (Set<Long> ids : sortedNames.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            addUpTo(result, ids, limit);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of indexed pets
+     */
+    public int size() {
+        return names.size();
+    }
+
+    private void unindex(long id, String name) {
+        for (String gram : gramsOf(name)) {
+            removeFrom(grams, gram, id);
+        }
+        removeFrom(sortedNames, name, id);
+    }
+
+    private static void addTo(Map<String, Set<Long>> map, String key, long id) {
+        map.compute(key, (k, ids) -> {
+            Set<Long> set = ids != null ? ids : ConcurrentHashMap.<Long>newKeySet();
+            set.add(id);
+            return set;
+        });
+    }
+
+    private static void removeFrom(Map<String, Set<Long>> map, String key, long id) {
+        map.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static void addUpTo(List<Long> result, Set<Long> ids, int limit) {
+        for (Long id : ids) {
+            if (result.size() >= limit) {
+                return;
+            }
+            result.add(id);
+        }
+    }
+
+    private static Set<String> gramsOf(String name) {
+        Set<String> set = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int x = 0; x + length <= name.length(); x++) {
+                set.add(name.substring(x, x + length));
+            }
+        }
+        return set;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,158 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.*;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounded read-through cache used in front of the database lookups.
+ * Entries are evicted when the cache is full (least recently used first) or
+ * when they are older than the time to live. Concurrent misses for the same
+ * key share one load.
+ *
+ * @param <K> type of the key
+ * @param <V> type of the cached value
+ */
+public class PetCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final Lock lock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong(); // bumped on every invalidation
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param name    name of the cache, used as the cache tag of the metrics
+     * @param maxSize most entries kept
+     * @param ttlMs   time to live of an entry in milliseconds
+     * @param meters  registry for the hit, miss and eviction metrics
+     */
+    public PetCache(String name, int maxSize, long ttlMs, MeterRegistry meters) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > PetCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = Counter.builder("virtualpet.cache.hits").tag("cache", name).register(meters);
+        this.misses = Counter.builder("virtualpet.cache.misses").tag("cache", name).register(meters);
+        this.evictions = Counter.builder("virtualpet.cache.evictions").tag("cache", name).register(meters);
+        Gauge.builder("virtualpet.cache.size", this, PetCache::size).tag("cache", name).register(meters);
+    }
+
+    /**
+     * Returns the cached value or loads it. A null value is returned but not
+     * cached.
+     *
+     * @param key    the key to look up
+     * @param loader loads the value on a miss
+     * @return the value
+     */
+    public V get(K key, Function<K, V> loader) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            return running.join(); // another thread is already loading this key
+        }
+        long startGeneration = generation.get();
+        try {
+            V value = loader.apply(key);
+            if (value != null) {
+                lock.lock();
+                try {
+                    if (generation.get() == startGeneration) { // skip values invalidated while loading
+                        entries.put(key, new Entry<>(value, System.nanoTime()));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Removes one key.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every key.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A cached value and when it was loaded
+     */
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
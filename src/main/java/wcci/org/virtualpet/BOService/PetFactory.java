@@ -0,0 +1,36 @@
+package wcci.org.virtualpet.BOService;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Creates a new pet model for a pet type.
+ */
+public final class PetFactory {
+
+    private PetFactory() {
+    }
+
+    /**
+     * Creates a new pet with the starting vitals of its type.
+     *
+     * @param type type of the pet
+     * @param name name of the pet
+     * @param age  age of the pet
+     * @return the new pet, not saved yet
+     */
+    public static CommonModel create(PetType type, String name, int age) {
+        switch (type) {
+            case CAT:
+                return new CatModel(name, age);
+            case DOG:
+                return new DogModel(name, age);
+            case ROBOTIC_CAT:
+                return new RoboticCatModel(name, age);
+            case ROBOTIC_DOG:
+                return new RoboticDogModel(name, age);
+            default:
+                throw new IllegalArgumentException("Unknown pet type " + type);
+        }
+    }
+}
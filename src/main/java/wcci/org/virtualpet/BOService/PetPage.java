@@ -0,0 +1,14 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.List;
+
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * One page of pets ordered by id.
+ *
+ * @param pets       the pets on this page
+ * @param nextCursor id to pass as the cursor of the next page, null on the last page
+ */
+public record PetPage(List<PetInterface> pets, Long nextCursor) {
+}
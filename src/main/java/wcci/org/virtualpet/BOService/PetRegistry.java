@@ -0,0 +1,431 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.*;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * In memory registry of the live pets.
+ * The pets are spread over a number of segments (lock stripes), each guarded by
+ * its own read/write lock, so reads, admissions and the tick only wait on each
+ * other when they touch the same segment.
+ * The pets are also partitioned by pet type, for type queries and counts that
+ * only touch the matching pets. The type partitions and the name index are
+ * changed under the write lock of the pet's segment, together with the
+ * segment itself, so they always hold the same pets.
+ * The time spent waiting for a contended segment lock and the time a write
+ * lock is held are recorded, an uncontended read costs one tryLock.
+ */
+@Component
+public class PetRegistry {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final NameIndex names = new NameIndex();
+    private final EnumMap<PetType, Map<Long, PetInterface>> byType = new EnumMap<>(PetType.class);
+    private final Timer readWait;
+    private final Timer writeWait;
+    private final Timer writeHold;
+
+    /**
+     * Default Constructor
+     */
+    public PetRegistry() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param meters the registry the lock timings are recorded in
+     */
+    @Autowired
+    public PetRegistry(MeterRegistry meters) {
+        this(DEFAULT_STRIPES, meters);
+    }
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param stripes number of segments, rounded up to a power of two
+     */
+    public PetRegistry(int stripes) {
+        this(stripes, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param stripes number of segments, rounded up to a power of two
+     * @param meters  the registry the lock timings are recorded in
+     */
+    public PetRegistry(int stripes, MeterRegistry meters) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.segments = new Segment[size];
+        for (int x = 0; x < size; x++) {
+            segments[x] = new Segment();
+        }
+        this.mask = size - 1;
+        for (PetType type : PetType.values()) {
+            byType.put(type, new ConcurrentHashMap<>());
+        }
+        this.readWait = Timer.builder("virtualpet.registry.lock.wait")
+                .description("Time spent waiting for a contended segment lock")
+                .tag("lock", "read")
+                .register(meters);
+        this.writeWait = Timer.builder("virtualpet.registry.lock.wait")
+                .description("Time spent waiting for a contended segment lock")
+                .tag("lock", "write")
+                .register(meters);
+        this.writeHold = Timer.builder("virtualpet.registry.lock.hold")
+                .description("Time a segment write lock is held")
+                .register(meters);
+    }
+
+    /**
+     * Adds or replaces a pet in the registry.
+     *
+     * @param pet the pet to add
+     * @return the pet which was added
+     */
+    public PetInterface put(PetInterface pet) {
+        Segment segment = segmentFor(pet.getId());
+        long locked = lockWrite(segment);
+        try {
+            add(segment, pet);
+            segment.count = segment.pets.size();
+        } finally {
+            unlockWrite(segment, locked);
+        }
+        return pet;
+    }
+
+    /**
+     * Adds or replaces a batch of pets, taking each segment lock only once.
+     *
+     * @param pets the pets to add
+     */
+    public void putAll(Collection<? extends PetInterface> pets) {
+        if (pets.isEmpty()) {
+            return;
+        }
+        List<List<PetInterface>> bySegment = groupBySegment(pets);
+        for (int x = 0; x < segments.length; x++) {
+            List<PetInterface> group = bySegment.get(x);
+            if (group == null) {
+                continue;
+            }
+            Segment segment = segments[x];
+            long locked = lockWrite(segment);
+            try {
+                for (PetInterface pet : group) {
+                    add(segment, pet);
+                }
+                segment.count = segment.pets.size();
+            } finally {
+                unlockWrite(segment, locked);
+            }
+        }
+    }
+
+    /**
+     * Indexes the new name of a pet. A pet which is no longer in the registry,
+     * like one the tick removed when it died, is not added back.
+     *
+     * @param pet the renamed pet
+     * @return true when the pet is in the registry
+     */
+    public boolean rename(PetInterface pet) {
+        Segment segment = segmentFor(pet.getId());
+        long locked = lockWrite(segment);
+        try {
+            if (segment.pets.get(pet.getId()) != pet) {
+                return false;
+            }
+            names.add(pet.getId(), pet.getName());
+            return true;
+        } finally {
+            unlockWrite(segment, locked);
+        }
+    }
+
+    /**
+     * Finds a pet by its id.
+     *
+     * @param id id of the pet
+     * @return the pet or null when it is not in the registry
+     */
+    public PetInterface getById(long id) {
+        Segment segment = segmentFor(id);
+        lockRead(segment);
+        try {
+            return segment.pets.get(id);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a pet by its id.
+     *
+     * @param id id of the pet
+     * @return the pet which was removed or null when it was not in the registry
+     */
+    public PetInterface removeById(long id) {
+        Segment segment = segmentFor(id);
+        long locked = lockWrite(segment);
+        try {
+            PetInterface removed = remove(segment, id);
+            segment.count = segment.pets.size();
+            return removed;
+        } finally {
+            unlockWrite(segment, locked);
+        }
+    }
+
+    /**
+     * Removes a batch of pets, taking each segment lock only once.
+     *
+     * @param pets the pets to remove
+     */
+    public void removeAll(Collection<? extends PetInterface> pets) {
+        if (pets.isEmpty()) {
+            return;
+        }
+        List<List<PetInterface>> bySegment = groupBySegment(pets);
+        for (int x = 0; x < segments.length; x++) {
+            List<PetInterface> group = bySegment.get(x);
+            if (group == null) {
+                continue;
+            }
+            Segment segment = segments[x];
+            long locked = lockWrite(segment);
+            try {
+                for (PetInterface pet : group) {
+                    remove(segment, pet.getId());
+                }
+                segment.count = segment.pets.size();
+            } finally {
+                unlockWrite(segment, locked);
+            }
+        }
+    }
+
+    /**
+     * Adds a pet to its segment and the indexes, the segment write lock is
+     * held by the caller.
+     */
+    private void add(Segment segment, PetInterface pet) {
+        PetInterface previous = segment.pets.put(pet.getId(), pet);
+        if (previous != null && previous.getType() != pet.getType()) {
+            byType.get(previous.getType()).remove(pet.getId());
+        }
+        byType.get(pet.getType()).put(pet.getId(), pet);
+        names.add(pet.getId(), pet.getName());
+    }
+
+    /**
+     * Removes a pet from its segment and the indexes, the segment write lock
+     * is held by the caller.
+     */
+    private PetInterface remove(Segment segment, long id) {
+        PetInterface removed = segment.pets.remove(id);
+        if (removed != null) {
+            byType.get(removed.getType()).remove(id);
+            names.remove(id);
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the pets whose name contains the text, case is ignored.
+     *
+     * @param text  the text to look for
+     * @param limit most pets returned
+     * @return the matching pets
+     */
+    public List<PetInterface> findByName(String text, int limit) {
+        return resolve(names.findContaining(text, limit));
+    }
+
+    /**
+     * Finds the pets whose name starts with the prefix, case is ignored.
+     *
+     * @param prefix the start of the name
+     * @param limit  most pets returned
+     * @return the matching pets in name order
+     */
+    public List<PetInterface> findByNamePrefix(String prefix, int limit) {
+        return resolve(names.findByPrefix(prefix, limit));
+    }
+
+    /**
+     * Number of pets in the registry, read without taking any lock.
+     *
+     * @return number of pets
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Number of pets of one type.
+     *
+     * @param type the pet type
+     * @return number of pets of that type
+     */
+    public int countByType(PetType type) {
+        return byType.get(type).size();
+    }
+
+    /**
+     * Copies the pets of one type into a new list.
+     *
+     * @param type the pet type
+     * @return snapshot of the pets of that type
+     */
+    public List<PetInterface> getByPetType(PetType type) {
+        return new ArrayList<>(byType.get(type).values());
+    }
+
+    /**
+     * Visits every pet of one type.
+     *
+     * @param type   the pet type
+     * @param action the action to run for each pet
+     */
+    public void forEachOfType(PetType type, Consumer<PetInterface> action) {
+        byType.get(type).values().forEach(action);
+    }
+
+    /**
+     * Copies the pets into a new list, without taking any segment lock. The
+     * pets are grouped by type, so the tick runs over runs of the same class.
+     *
+     * @return snapshot of the pets
+     */
+    public List<PetInterface> values() {
+        ArrayList<PetInterface> list = new ArrayList<>(size());
+        for (Map<Long, PetInterface> partition : byType.values()) {
+            list.addAll(partition.values());
+        }
+        return list;
+    }
+
+    /**
+     * Visits every pet while holding the read lock of its segment.
+     * Only one segment is locked at a time.
+     *
+     * @param action the action to run for each pet
+     */
+    public void forEach(Consumer<PetInterface> action) {
+        for (Segment segment : segments) {
+            lockRead(segment);
+            try {
+                for (PetInterface pet : segment.pets.values()) {
+                    action.accept(pet);
+                }
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the write lock of a segment, the wait is only timed when the lock
+     * is contended.
+     *
+     * @return the time the lock was taken
+     */
+    private long lockWrite(Segment segment) {
+        Lock lock = segment.lock.writeLock();
+        if (lock.tryLock()) {
+            return System.nanoTime();
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        long locked = System.nanoTime();
+        writeWait.record(locked - start, TimeUnit.NANOSECONDS);
+        return locked;
+    }
+
+    private void unlockWrite(Segment segment, long locked) {
+        segment.lock.writeLock().unlock();
+        writeHold.record(System.nanoTime() - locked, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes the read lock of a segment, the wait is only timed when the lock
+     * is contended.
+     */
+    private void lockRead(Segment segment) {
+        Lock lock = segment.lock.readLock();
+        if (lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        readWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private List<PetInterface> resolve(List<Long> ids) {
+        List<PetInterface> list = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PetInterface pet = getById(id);
+            if (pet != null) {
+                list.add(pet);
+            }
+        }
+        return list;
+    }
+
+    private List<List<PetInterface>> groupBySegment(Collection<? extends PetInterface> pets) {
+        List<List<PetInterface>> bySegment = new ArrayList<>(Collections.nCopies(segments.length, null));
+        for (PetInterface pet : pets) {
+            int index = indexFor(pet.getId());
+            List<PetInterface> group = bySegment.get(index);
+            if (group == null) {
+                group = new ArrayList<>();
+                bySegment.set(index, group);
+            }
+            group.add(pet);
+        }
+        return bySegment;
+    }
+
+    private Segment segmentFor(long id) {
+        return segments[indexFor(id)];
+    }
+
+    private int indexFor(long id) {
+        int hash = Long.hashCode(id) * 0x9E3779B9; // spread sequential ids over the segments
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * One lock stripe of the registry
+     */
+    private static final class Segment {
+        private final Map<Long, PetInterface> pets = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile int count;
+    }
+}
@@ -0,0 +1,67 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Enums.Vital;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * Selects the pets a bulk care action applies to: a list of ids, or the live
+ * pets of a type and/or whose vitals match a predicate.
+ *
+ * @param ids     ids of the pets, null to select by type and vitals
+ * @param type    only pets of this type, null for every type
+ * @param vitals  only pets matching this predicate, null for every pet
+ */
+public record PetSelector(List<Long> ids, PetType type, Predicate<PetInterface> vitals) {
+
+    /**
+     * @param ids ids of the pets
+     * @return a selector of the pets with these ids
+     */
+    public static PetSelector ids(Collection<Long> ids) {
+        return new PetSelector(List.copyOf(ids), null, null);
+    }
+
+    /**
+     * @param type type of the pets
+     * @return a selector of the live pets of a type
+     */
+    public static PetSelector type(PetType type) {
+        return new PetSelector(null, type, null);
+    }
+
+    /**
+     * Selects the pets with a vital in a range, pets without the vital are not
+     * selected.
+     *
+     * @param type  only pets of this type, null for every type
+     * @param vital the vital
+     * @param min   lowest level selected
+     * @param max   highest level selected
+     * @return a selector of the live pets with the vital in the range
+     */
+    public static PetSelector vital(PetType type, Vital vital, int min, int max) {
+        return new PetSelector(null, type, pet -> {
+            int level = vital.of(pet);
+            return level >= 0 && level >= min && level <= max;
+        });
+    }
+
+    /**
+     * @return true when the pets are selected by their ids
+     */
+    public boolean byIds() {
+        return ids != null;
+    }
+
+    /**
+     * @param pet a live pet of the type, brought up to date
+     * @return true when the vitals of the pet match
+     */
+    public boolean matches(PetInterface pet) {
+        return vitals == null || vitals.test(pet);
+    }
+}
@@ -0,0 +1,199 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Generates a large synthetic population for load tests and benchmarks.
+ * The pets are built from a seed, so the same settings always give the same
+ * names, types, ages and vitals. The ids depend on the order the batches reach
+ * the database and may differ between runs.
+ * The population is cut in batches, every batch has its own random generator
+ * split from the seed, and the batches are built and admitted in parallel,
+ * each with batched inserts in its own transaction.
+ */
+@Component
+public class PopulationGenerator {
+    private static final String[] NAMES = { "Fuzzy", "Zake", "Smokey", "Molly", "Moon", "Daisy", "Perfect",
+            "Spot", "Rocky", "Poppy", "Stella", "Rex", "Iris", "Ranger" };
+
+    private final AdmissionService admissions;
+    private final int size;
+    private final long seed;
+    private final PetType[] types;
+    private final int[] cumulativeWeights;
+    private final int minAge;
+    private final int maxAge;
+    private final boolean normal;
+    private final int vitalsSpread;
+    private final int batchSize;
+    private final int parallelism;
+
+    public PopulationGenerator(AdmissionService admissions,
+            @Value("${virtualpet.population.size:0}") int size,
+            @Value("${virtualpet.population.seed:1}") long seed,
+            @Value("${virtualpet.population.mix:CAT:1,DOG:1,ROBOTIC_CAT:1,ROBOTIC_DOG:1}") String mix,
+            @Value("${virtualpet.population.min-age:2}") int minAge,
+            @Value("${virtualpet.population.max-age:15}") int maxAge,
+            @Value("${virtualpet.population.distribution:uniform}") String distribution,
+            @Value("${virtualpet.population.vitals-spread:0}") int vitalsSpread,
+            @Value("${virtualpet.population.batch-size:10000}") int batchSize,
+            @Value("${virtualpet.population.parallelism:4}") int parallelism) {
+        this.admissions = admissions;
+        this.size = Math.max(0, size);
+        this.seed = seed;
+        EnumMap<PetType, Integer> weights = parseMix(mix);
+        this.types = weights.keySet().toArray(new PetType[0]);
+        this.cumulativeWeights = new int[types.length];
+        int total = 0;
+        for (int x = 0; x < types.length; x++) {
+            total += weights.get(types[x]);
+            cumulativeWeights[x] = total;
+        }
+        if (minAge < 1 || maxAge < minAge || maxAge > 20) { // the ages setAge accepts
+            throw new IllegalArgumentException("Invalid population ages " + minAge + " to " + maxAge);
+        }
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        switch (distribution) {
+            case "uniform":
+                this.normal = false;
+                break;
+            case "normal":
+                this.normal = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + distribution + ", use uniform or normal");
+        }
+        this.vitalsSpread = Math.max(0, vitalsSpread);
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parses a type mix such as CAT:3,DOG:1, the numbers are relative weights.
+     */
+    private static EnumMap<PetType, Integer> parseMix(String mix) {
+        EnumMap<PetType, Integer> weights = new EnumMap<>(PetType.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = pair.length == 2 ? Integer.parseInt(pair[1].trim()) : -1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid population mix " + mix + ", use TYPE:weight,...");
+            }
+            if (weight > 0) {
+                weights.put(PetType.valueOf(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Population mix " + mix + " has no pet type");
+        }
+        return weights;
+    }
+
+    /**
+     * @return number of pets to generate, 0 when the generator is off
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Builds the configured number of pets and admits them.
+     *
+     * @return number of pets admitted
+     */
+    public int populate() {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < size; from += batchSize) {
+            int start = from;
+            int count = Math.min(batchSize, size - from);
+            SplittableRandom random = root.split(); // split in order, so every batch gets the same numbers
+            batches.add(() -> admissions.admitAll(generate(start, count, random)).size());
+        }
+        int admitted = 0;
+        try (ExecutorService pool = Executors.newFixedThreadPool(parallelism)) {
+            for (Future<Integer> batch : pool.invokeAll(batches)) {
+                admitted += batch.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Population interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Population failed", e.getCause());
+        }
+        return admitted;
+    }
+
+    /**
+     * Builds one batch of pets.
+     *
+     * @param start  number of the first pet, used in the names
+     * @param count  number of pets
+     * @param random generator of the batch
+     * @return the new pets, not saved yet
+     */
+    public List<PetInterface> generate(int start, int count, SplittableRandom random) {
+        List<PetInterface> pets = new ArrayList<>(count);
+        for (int x = start; x < start + count; x++) {
+            PetType type = pickType(random);
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + x;
+            CommonModel pet = PetFactory.create(type, name, (int) Math.round(draw(random, minAge, maxAge)));
+            if (vitalsSpread > 0) {
+                vary(pet, random);
+            }
+            pets.add(pet);
+        }
+        return pets;
+    }
+
+    private PetType pickType(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int x = 0; x < types.length; x++) {
+            if (pick < cumulativeWeights[x]) {
+                return types[x];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    /**
+     * Moves the starting vitals of a pet by up to the spread, staying clear of
+     * the bounds that kill it.
+     */
+    private void vary(CommonModel pet, SplittableRandom random) {
+        if (pet instanceof PetModel organic) {
+            organic.setHealth(spread(random, organic.getHealth()));
+            organic.setHappiness(spread(random, organic.getHappiness()));
+            organic.setHungery(spread(random, organic.getHungery()));
+            organic.setThirst(spread(random, organic.getThirst()));
+        } else if (pet instanceof RoboticPetModel robotic) {
+            robotic.setOilLevel(spread(random, robotic.getOilLevel()));
+            robotic.setPowerLevel(spread(random, robotic.getPowerLevel()));
+        }
+    }
+
+    private int spread(SplittableRandom random, int base) {
+        int value = (int) Math.round(draw(random, base - vitalsSpread, base + vitalsSpread));
+        return Math.max(1, Math.min(99, value));
+    }
+
+    /**
+     * Draws a value between two bounds, uniform or normal around the middle
+     * with the bounds three standard deviations away.
+     */
+    private double draw(SplittableRandom random, double low, double high) {
+        if (!normal) {
+            return low + random.nextDouble() * (high - low);
+        }
+        double value = random.nextGaussian((low + high) / 2, (high - low) / 6);
+        return Math.max(low, Math.min(high, value));
+    }
+}
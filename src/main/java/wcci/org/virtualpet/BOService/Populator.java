@@ -4,9 +4,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Interfaces.PetInterface;
 import wcci.org.virtualpet.Models.*;
-import wcci.org.virtualpet.Repositories.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 @Component
@@ -17,75 +19,45 @@ public class Populator implements CommandLineRunner {
     private final int max = 15;
 
     @Resource
-    private final ScheduledTask task;
+    private AdmissionService admissions;
 
     @Resource
-    private CatRepository cats;
+    private RecoveryService recovery;
 
     @Resource
-    private DogRepository dogs;
-
-    @Resource
-    private RoboticCatRepository roboCats;
-
-    @Resource
-    private RoboticDogRepository roboDogs;
-
-    public Populator(CatRepository cats, DogRepository dogs, RoboticCatRepository roboCats,
-            RoboticDogRepository roboDogs, ScheduledTask task) {
-        this.cats = cats;
-        this.dogs = dogs;
-        this.roboCats = roboCats;
-        this.roboDogs = roboDogs;
-        this.task = task;
+    private PopulationGenerator generator;
 
+    public Populator(AdmissionService admissions, RecoveryService recovery, PopulationGenerator generator) {
+        this.admissions = admissions;
+        this.recovery = recovery;
+        this.generator = generator;
     }
 
     @Override
     public void run(String... args) throws Exception {
-
-        CatModel cat = new CatModel("Fuzzy", getRandomAge());
-        cats.save(cat);
-        task.put(cat);
-        cat = new CatModel("Zake", getRandomAge());
-        cats.save(cat);
-        task.put(cat);
-        cat = new CatModel("Smokey", getRandomAge());
-        cats.save(cat);
-        task.put(cat);
-        cat = new CatModel("Molly", getRandomAge());
-        cats.save(cat);
-        task.put(cat);
-        RoboticCatModel roboCat = new RoboticCatModel("Moon", getRandomAge());
-        roboCats.save(roboCat);
-        task.put(roboCat);
-        roboCat = new RoboticCatModel("Daisy", getRandomAge());
-        roboCats.save(roboCat);
-        task.put(roboCat);
-        roboCat = new RoboticCatModel("Perfect", getRandomAge());
-        roboCats.save(roboCat);
-        task.put(roboCat);
-        DogModel dog = new DogModel("Spot", getRandomAge());
-        dogs.save(dog);
-        task.put(dog);
-        dog = new DogModel("Rocky", getRandomAge());
-        dogs.save(dog);
-        task.put(dog);
-        dog = new DogModel("Poppy", getRandomAge());
-        dogs.save(dog);
-        task.put(dog);
-        dog = new DogModel("Stella", getRandomAge());
-        dogs.save(dog);
-        task.put(dog);
-        RoboticDogModel roboDog = new RoboticDogModel("Rex", getRandomAge());
-        roboDogs.save(roboDog);
-        task.put(roboDog);
-        roboDog = new RoboticDogModel("Iris", getRandomAge());
-        roboDogs.save(roboDog);
-        task.put(roboDog);
-        roboDog = new RoboticDogModel("Ranger", getRandomAge());
-        roboDogs.save(roboDog);
-        task.put(roboDog);
+        if (recovery.recover()) {
+            return; // the shelter came back from the journal
+        }
+        if (generator.getSize() > 0) {
+            generator.populate(); // a synthetic population instead of the named pets
+            return;
+        }
+        List<PetInterface> pets = new ArrayList<>();
+        pets.add(new CatModel("Fuzzy", getRandomAge()));
+        pets.add(new CatModel("Zake", getRandomAge()));
+        pets.add(new CatModel("Smokey", getRandomAge()));
+        pets.add(new CatModel("Molly", getRandomAge()));
+        pets.add(new RoboticCatModel("Moon", getRandomAge()));
+        pets.add(new RoboticCatModel("Daisy", getRandomAge()));
+        pets.add(new RoboticCatModel("Perfect", getRandomAge()));
+        pets.add(new DogModel("Spot", getRandomAge()));
+        pets.add(new DogModel("Rocky", getRandomAge()));
+        pets.add(new DogModel("Poppy", getRandomAge()));
+        pets.add(new DogModel("Stella", getRandomAge()));
+        pets.add(new RoboticDogModel("Rex", getRandomAge()));
+        pets.add(new RoboticDogModel("Iris", getRandomAge()));
+        pets.add(new RoboticDogModel("Ranger", getRandomAge()));
+        admissions.admitAll(pets);
     }
 
     private int getRandomAge() {
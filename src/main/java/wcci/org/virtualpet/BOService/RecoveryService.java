@@ -0,0 +1,201 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.CareAction;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Exceptions.ValidateException;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Rebuilds the shelter after a restart from the last snapshot and the action
+ * journal records written after it. The pets are rebuilt in memory first,
+ * then written to the database with their old ids and registered with the
+ * scheduled task in one batch each.
+ */
+@Service
+public class RecoveryService {
+    private static final Logger log = LoggerFactory.getLogger(RecoveryService.class);
+
+    @Resource
+    private ActionJournal journal;
+
+    @Resource
+    private DBService service;
+
+    @Resource
+    private ScheduledTask task;
+
+    @Resource
+    private SnapshotService snapshots;
+
+    public RecoveryService(ActionJournal journal, DBService service, ScheduledTask task,
+            SnapshotService snapshots) {
+        this.journal = journal;
+        this.service = service;
+        this.task = task;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Loads the snapshot and replays the journal when there are any.
+     *
+     * @return true when pets were recovered, false when the shelter starts
+     *         empty
+     */
+    public boolean recover() {
+        long start = System.nanoTime();
+        Recovered recovered = rebuild();
+        if (recovered == null) {
+            return false;
+        }
+        service.restoreAll(recovered.pets());
+        List<PetInterface> live = new ArrayList<>();
+        for (CommonModel pet : recovered.pets()) {
+            if (!pet.isDead()) {
+                live.add(pet);
+            }
+        }
+        task.resumeFrom(recovered.lastTick());
+        task.admitAll(live);
+        log.info("Loaded {} pets from the snapshot and replayed {} journal records in {} ms, "
+                + "{} pets alive after {} ticks",
+                recovered.fromSnapshot(), recovered.records(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), live.size(), recovered.lastTick());
+        return true;
+    }
+
+    /**
+     * Rebuilds the pets in memory from the snapshot and the journal records
+     * written after it, the database and the scheduled task are not touched.
+     *
+     * @return the rebuilt pets or null when there is nothing to recover
+     */
+    public Recovered rebuild() {
+        Replay replay = new Replay();
+        long from = 0;
+        SnapshotService.Snapshot snapshot = snapshots.load();
+        if (snapshot != null) {
+            for (SnapshotService.Copy copy : snapshot.pets()) {
+                replay.pets.put(copy.pet().getId(), copy.pet());
+                replay.copies.put(copy.pet().getId(), copy);
+            }
+            replay.lastTick = snapshot.tick();
+            from = snapshot.journalPosition();
+        }
+        long records = journal.replay(from, replay);
+        if (snapshot == null && records == 0) {
+            return null;
+        }
+        return new Recovered(replay.pets.values(), replay.lastTick,
+                snapshot == null ? 0 : snapshot.pets().size(), records);
+    }
+
+    /**
+     * Pets rebuilt from the snapshot and the journal
+     *
+     * @param pets         every pet, the dead ones stay until they are adopted
+     * @param lastTick     the last tick which was run
+     * @param fromSnapshot number of pets loaded from the snapshot
+     * @param records      number of journal records replayed
+     */
+    public record Recovered(Collection<CommonModel> pets, long lastTick, int fromSnapshot, long records) {
+    }
+
+    /**
+     * Applies the journal records to pets held in memory. The pets of the
+     * snapshot were copied one at a time, each skips the records its copy
+     * already holds.
+     */
+    private static final class Replay implements ActionJournal.Visitor {
+        private final Map<Long, CommonModel> pets = new LinkedHashMap<>(); // dead pets stay until adopted
+        private final Map<Long, SnapshotService.Copy> copies = new HashMap<>();
+        private final Set<CommonModel> killed = new HashSet<>(); // died of a care action since the last tick
+        private long lastTick;
+
+        @Override
+        public void admitted(long id, PetType type, int age, String name, long state) {
+            if (copies.containsKey(id)) {
+                return; // admitted before it was copied
+            }
+            CommonModel pet = PetFactory.create(type, name, age);
+            pet.setId(id);
+            if (state != 0) {
+                restore(pet, state);
+            }
+            pets.put(id, pet);
+        }
+
+        /**
+         * Gives a new pet the starting vitals it was admitted with, such as
+         * those of a generated population.
+         */
+        private static void restore(CommonModel pet, long state) {
+            if (pet instanceof PetModel organic) {
+                organic.setHealth(PetModel.health(state));
+                organic.setHappiness(PetModel.happiness(state));
+                organic.setHungery(PetModel.hungery(state));
+                organic.setThirst(PetModel.thirst(state));
+            } else if (pet instanceof RoboticPetModel robotic) {
+                robotic.setOilLevel(RoboticPetModel.oilLevel(state));
+                robotic.setPowerLevel(RoboticPetModel.powerLevel(state));
+            }
+            pet.setDeathBy(CommonModel.causeOf(state)); // the setters above may have guessed a cause
+        }
+
+        @Override
+        public void action(long id, CareAction action, long end) {
+            SnapshotService.Copy copy = copies.get(id);
+            if (copy != null && end <= copy.journalPosition()) {
+                return; // applied before it was copied
+            }
+            CommonModel pet = pets.get(id);
+            if (pet != null && !pet.isDead()) { // a pet killed by an earlier action takes no more, as live
+                action.apply(pet);
+                if (pet.isDead()) {
+                    killed.add(pet); // still in the registry for the next tick
+                }
+            }
+        }
+
+        @Override
+        public void updated(long id, String name, int age) {
+            CommonModel pet = pets.get(id);
+            if (pet == null) {
+                return;
+            }
+            try {
+                pet.setName(name);
+                pet.setAge(age);
+            } catch (ValidateException e) {
+                throw new IllegalStateException("Journal holds an invalid update for pet " + id, e);
+            }
+        }
+
+        @Override
+        public void tick(long tick) {
+            for (CommonModel pet : pets.values()) {
+                SnapshotService.Copy copy = copies.get(pet.getId());
+                if (copy != null && tick <= copy.tick()) {
+                    continue; // ran before it was copied
+                }
+                if (!pet.isDead() || killed.contains(pet)) {
+                    pet.passageOfTime();
+                }
+            }
+            killed.clear();
+            lastTick = tick;
+        }
+
+        @Override
+        public void removed(long id) {
+            pets.remove(id);
+        }
+    }
+}
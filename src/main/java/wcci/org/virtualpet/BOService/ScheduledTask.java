@@ -1,131 +1,229 @@
 package wcci.org.virtualpet.BOService;
 
 import java.util.*;
-import java.util.concurrent.locks.*;
-import org.springframework.scheduling.annotation.Scheduled;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.DeathBy;
 import wcci.org.virtualpet.Enums.PetType;
 import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
 
 @Component
 public class ScheduledTask {
-    private static Map<Long, PetInterface> map = new HashMap<>();
-    private static final Lock lock = new ReentrantLock(); // lock object
-
     @Resource
     private DBService service;
 
-    public ScheduledTask(DBService service) {
+    @Resource
+    private PetRegistry registry;
+
+    @Resource
+    private TickEngine engine;
+
+    @Resource
+    private WriteBehindService writeBehind;
+
+    @Resource
+    private TickDeltaPublisher publisher;
+
+    @Resource
+    private ActionJournal journal;
+
+    @Resource
+    private SnapshotService snapshots;
+
+    @Resource
+    private SimulationClock clock;
+
+    @Resource
+    private TickLog log;
+
+    private final Timer tickTimer;
+    private final DistributionSummary petsPerTick;
+    private final EnumMap<DeathBy, Counter> deathsByCause = new EnumMap<>(DeathBy.class);
+
+    public ScheduledTask(DBService service, PetRegistry registry, TickEngine engine,
+            WriteBehindService writeBehind, TickDeltaPublisher publisher, ActionJournal journal,
+            SnapshotService snapshots, SimulationClock clock, TickLog log, MeterRegistry meters) {
         this.service = service;
+        this.registry = registry;
+        this.engine = engine;
+        this.writeBehind = writeBehind;
+        this.publisher = publisher;
+        this.journal = journal;
+        this.snapshots = snapshots;
+        this.clock = clock;
+        this.log = log;
+        String mode = clock.isLazy() ? "lazy" : "eager";
+        this.tickTimer = Timer.builder("virtualpet.tick.duration")
+                .description("Time to run one batch of ticks over the pets")
+                .tag("mode", mode)
+                .register(meters);
+        this.petsPerTick = DistributionSummary.builder("virtualpet.tick.pets")
+                .description("Pets processed by one batch of ticks")
+                .tag("mode", mode)
+                .register(meters);
+        for (DeathBy cause : DeathBy.values()) {
+            if (cause != DeathBy.None) {
+                deathsByCause.put(cause, Counter.builder("virtualpet.tick.deaths")
+                        .description("Pets that died during a tick")
+                        .tag("cause", cause.name())
+                        .register(meters));
+            }
+        }
     }
 
     /**
-     * Task runs with a delay of 5 seconds after the previous execution completes
+     * Runs a batch of ticks, called by the tick scheduler. More than one tick
+     * is run when the scheduler is catching up, each pet then takes all of
+     * them in one step.
+     * In lazy time mode only the pets whose predicted death has come are
+     * touched, the others catch up when they are read or cared for and their
+     * changes are written and streamed then.
+     * Care actions and admissions wait while the ticks run, so each of them
+     * is journaled on the same side of the ticks as it was applied.
+     *
+     * @param count number of ticks to run
      */
-    @Scheduled(fixedDelay = 5000)
-    public void runTaskWithFixedDelay() {
-        System.out.println("Passage of time " + map.size() + " pets to check ");
-        lock.lock(); // Acquire the lock
-        ArrayList<Long> toDelete = new ArrayList<>();
+    public void runTicks(int count) {
+        log.begin(clock.now() + count);
+        TickEngine.TickResult result;
+        long ticks;
+        Lock order = journal.tickLock();
+        order.lock();
         try {
-            for (long x = map.size(); x > 0; x--) {
-                PetInterface current = map.get(x);
-                System.out.println(current.toString());
-                current.passageOfTime();
-                if (current.isDead()) {
-                    System.out.println(current);
-                    map.remove(current.getId());
-                }
+            if (clock.isLazy()) {
+                ticks = clock.advance(count);
+                result = engine.expire(clock, pet -> registry.getById(pet.getId()) == pet);
+            } else {
+                result = engine.tick(registry.values(), count);
+                ticks = clock.advance(count);
+            }
+            for (long tick = ticks - count + 1; tick <= ticks; tick++) {
+                journal.tick(tick); // one record, the tick is run again for every pet on replay
             }
-
         } finally {
-            lock.unlock();
+            order.unlock();
+        }
+        tickTimer.record(result.elapsedNanos(), TimeUnit.NANOSECONDS);
+        petsPerTick.record(result.processed());
+        for (PetInterface dead : result.deaths()) {
+            if (dead instanceof CommonModel model) {
+                deathsByCause.get(model.getDeathBy()).increment();
+                log.death(ticks, model);
+            }
         }
+        registry.removeAll(result.deaths());
+        writeBehind.markAllDirty(result.changed()); // the dead are written too, so their cause of death is kept
+        publisher.publish(ticks, result.changed());
+        snapshots.captureIfDue(ticks, count); // copied and written on the snapshot thread
+        log.summary(ticks, count, result, engine.getParallelism());
+    }
 
+    /**
+     * Continues the tick count of a shelter recovered from the journal.
+     *
+     * @param tick the last tick which was run before the restart
+     */
+    public void resumeFrom(long tick) {
+        clock.resumeFrom(tick);
     }
 
     public Collection<PetInterface> getMap() {
-        Map<Long, PetInterface> list = new HashMap<Long, PetInterface>();
-        lock.lock(); // Acquire the lock
-        try {
-            for (Map.Entry<Long, PetInterface> entry : list.entrySet()) {
-                list.put(entry.getKey(), entry.getValue());
-            }
-
-        } finally {
-            lock.unlock();
-        }
-        return list.values();
+        return materializeAll(registry.values());
     }
 
     public Collection<PetInterface> getByPetType(PetType petType) {
-        Map<Long, PetInterface> list = new HashMap<Long, PetInterface>();
-        lock.lock(); // Acquire the lock
-        try {
-            for (Map.Entry<Long, PetInterface> entry : list.entrySet()) {
-                if (entry.getValue().getType().equals(petType)) {
-                    list.put(entry.getKey(), entry.getValue());
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
-        return list.values();
+        return materializeAll(registry.getByPetType(petType));
+    }
+
+    public int countByPetType(PetType petType) {
+        return registry.countByType(petType);
     }
 
     public Collection<PetInterface> getByName(String name) {
-        Map<Long, PetInterface> list = new HashMap<Long, PetInterface>();
-        lock.lock(); // Acquire the lock
-        try {
-            for (Map.Entry<Long, PetInterface> entry : list.entrySet()) {
-                if (entry.getValue().getName().contains(name)) {
-                    list.put(entry.getKey(), entry.getValue());
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
-        return list.values();
+        return materializeAll(registry.findByName(name, Integer.MAX_VALUE));
+    }
+
+    public Collection<PetInterface> getByName(String name, int limit) {
+        return materializeAll(registry.findByName(name, limit));
+    }
+
+    public Collection<PetInterface> getByNamePrefix(String prefix, int limit) {
+        return materializeAll(registry.findByNamePrefix(prefix, limit));
     }
 
     public PetInterface getById(Long id) {
-        PetInterface item = null;
-        lock.lock(); // Acquire the lock
-        try {
-            for (Map.Entry<Long, PetInterface> entry : map.entrySet()) {
-                if (entry.getValue().getId() == id) {
-                    item = entry.getValue();
-                }
-            }
-        } finally {
-            lock.unlock();
+        PetInterface pet = registry.getById(id);
+        if (pet != null) {
+            materialize(pet);
         }
-        return item;
+        return pet;
     }
 
-    public void removeById(Long id) {
-        lock.lock(); // Acquire the lock
-        try {
-            for (Map.Entry<Long, PetInterface> entry : map.entrySet()) {
-                if (entry.getValue().getId() == id) {
-                    map.remove(id);
-                }
-            }
-        } finally {
-            lock.unlock();
-        }
+    public PetInterface removeById(Long id) {
+        return registry.removeById(id);
     }
 
     public PetInterface put(PetInterface item) {
+        return registry.put(item);
+    }
 
-        lock.lock(); // Acquire the lock
-        try {
-            map.put(item.getId(), item);
-        } finally {
-            lock.unlock();
+    /**
+     * Indexes the new name of a live pet.
+     *
+     * @param item the renamed pet
+     * @return false when the pet left the registry meanwhile
+     */
+    public boolean rename(PetInterface item) {
+        return registry.rename(item);
+    }
+
+    public void putAll(Collection<? extends PetInterface> items) {
+        registry.putAll(items);
+    }
+
+    /**
+     * Starts the clock of new pets at the current tick and registers them.
+     *
+     * @param items the new pets
+     */
+    public void admitAll(Collection<? extends PetInterface> items) {
+        for (PetInterface item : items) {
+            clock.start(item);
+        }
+        registry.putAll(items);
+    }
+
+    /**
+     * Brings a pet up to the current tick in lazy time mode. The lazy tick
+     * does not touch the pet, so this is where its new vitals are queued for
+     * the database and streamed to the subscribers.
+     */
+    private void materialize(PetInterface pet) {
+        if (clock.materialize(pet)) {
+            writeBehind.markDirty(pet);
+            publisher.publish(clock.now(), List.of(pet));
+        }
+    }
+
+    private <T extends Collection<PetInterface>> T materializeAll(T pets) {
+        if (clock.isLazy()) {
+            List<PetInterface> changed = new ArrayList<>();
+            for (PetInterface pet : pets) {
+                if (clock.materialize(pet)) {
+                    changed.add(pet);
+                }
+            }
+            writeBehind.markAllDirty(changed);
+            publisher.publish(clock.now(), changed); // one change set for the whole read
         }
-        return item;
+        return pets;
     }
 }
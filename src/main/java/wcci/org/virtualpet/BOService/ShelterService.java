@@ -0,0 +1,277 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.CareAction;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Exceptions.ValidateException;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+import wcci.org.virtualpet.Models.PetSummary;
+
+/**
+ * Business operations behind the Shelter Web API: list, admit, adopt, update
+ * and care for the pets, one at a time or in bulk. Live pets are read from the
+ * scheduled task, the database is only read for pets which are not in memory.
+ */
+@Service
+public class ShelterService {
+    private static final Logger log = LoggerFactory.getLogger(ShelterService.class);
+
+    @Resource
+    private DBService service;
+
+    @Resource
+    private ScheduledTask task;
+
+    @Resource
+    private AdmissionService admissions;
+
+    @Resource
+    private WriteBehindService writeBehind;
+
+    @Resource
+    private ActionJournal journal;
+
+    @Resource
+    private SimulationClock clock;
+
+    public ShelterService(DBService service, ScheduledTask task, AdmissionService admissions,
+            WriteBehindService writeBehind, ActionJournal journal, SimulationClock clock) {
+        this.service = service;
+        this.task = task;
+        this.admissions = admissions;
+        this.writeBehind = writeBehind;
+        this.journal = journal;
+        this.clock = clock;
+    }
+
+    /**
+     * Lists one page of pets ordered by id.
+     *
+     * @param afterId id of the last pet of the previous page, null for the first page
+     * @param size    most pets on the page
+     * @param petType only pets of this type, null for every type
+     * @return the pets on the page
+     */
+    public List<PetSummary> list(Long afterId, int size, PetType petType) {
+        return service.getSummaries(afterId, size, petType);
+    }
+
+    /**
+     * Finds pets in memory by part of their name.
+     *
+     * @param name  part of the name, case is ignored
+     * @param limit most pets returned
+     * @return the matching pets
+     */
+    public List<PetSummary> search(String name, int limit) {
+        List<PetSummary> list = new ArrayList<>();
+        for (PetInterface pet : task.getByName(name, limit)) {
+            list.add(PetSummary.of(pet));
+        }
+        return list;
+    }
+
+    /**
+     * @param id id of the pet
+     * @return the pet or null when there is no such pet
+     */
+    public PetSummary get(long id) {
+        PetInterface pet = task.getById(id);
+        if (pet == null) {
+            return service.getById(id); // a summary of the stored pet
+        }
+        return PetSummary.of(pet);
+    }
+
+    /**
+     * Admits a new pet into the shelter.
+     *
+     * @param name name of the pet
+     * @param type type of the pet
+     * @param age  age of the pet
+     * @return the admitted pet
+     * @throws ValidateException when the name or age is not valid
+     */
+    public PetSummary admit(String name, PetType type, int age) throws ValidateException {
+        if (type == null) {
+            throw new ValidateException("Invalid pet type, please try again\nType can not be empty");
+        }
+        CommonModel pet = PetFactory.create(type, name, age);
+        pet.setName(name);
+        pet.setAge(age);
+        return PetSummary.of(admissions.admit(pet));
+    }
+
+    /**
+     * Adopts a pet out of the shelter, it is removed from memory and the
+     * database.
+     *
+     * @param id id of the pet
+     * @return true when the pet was found
+     */
+    public boolean adopt(long id) {
+        boolean deleted = service.RemovePet(id) > 0;
+        boolean found;
+        long logged = 0;
+        Lock order = journal.changeLock();
+        order.lock();
+        try { // no tick between the removal and its record
+            found = task.removeById(id) != null || deleted;
+            if (found) {
+                logged = journal.removed(id);
+            }
+        } finally {
+            order.unlock();
+        }
+        journal.sync(logged);
+        return found;
+    }
+
+    /**
+     * Updates the name and age of a pet.
+     *
+     * @param id   id of the pet
+     * @param name new name, null keeps the name
+     * @param age  new age, null keeps the age
+     * @return the updated pet or null when there is no such pet
+     * @throws ValidateException when the name or age is not valid
+     */
+    public PetSummary update(long id, String name, Integer age) throws ValidateException {
+        if (!(task.getById(id) instanceof CommonModel pet)) {
+            return null;
+        }
+        long logged;
+        Lock order = journal.changeLock();
+        order.lock();
+        try { // no tick between the change and its record
+            synchronized (pet) {
+                if (name != null) {
+                    pet.setName(name);
+                }
+                if (age != null) {
+                    pet.setAge(age);
+                }
+                logged = journal.updated(pet);
+            }
+        } finally {
+            order.unlock();
+        }
+        task.rename(pet); // index the new name, a pet that died meanwhile is not added back
+        service.UpdatePet(pet);
+        journal.sync(logged);
+        return PetSummary.of(pet);
+    }
+
+    /**
+     * Performs a care action on a pet.
+     *
+     * @param id     id of the pet
+     * @param action the action
+     * @return the pet after the action or null when there is no such pet
+     */
+    public PetSummary care(long id, CareAction action) {
+        PetInterface pet = task.getById(id);
+        if (pet == null) {
+            return null;
+        }
+        long logged = 0;
+        boolean cared;
+        Lock order = journal.changeLock();
+        order.lock();
+        try { // no tick between the action and its record
+            synchronized (pet) { // two actions on one pet are journaled in the order they were applied
+                cared = clock.care(pet, action) && pet instanceof CommonModel;
+                if (cared) {
+                    logged = journal.action(id, action);
+                }
+            }
+        } finally {
+            order.unlock();
+        }
+        if (cared) {
+            writeBehind.markDirty(pet);
+            journal.sync(logged);
+        }
+        return PetSummary.of(pet);
+    }
+
+    /**
+     * Performs a care action on a group of pets. The pets are selected in one
+     * pass over the registry, the actions are journaled as they are applied,
+     * there is a single wait for the disk and the new vitals are then written
+     * in one batched transaction. When that fails the pets are left to
+     * write-behind, as the actions are already applied and journaled.
+     *
+     * @param action   the action
+     * @param selector the pets to care for
+     * @return what happened to every selected pet, in the order of the ids when
+     *         selected by id
+     */
+    public List<CareOutcome> careAll(CareAction action, PetSelector selector) {
+        List<Long> ids = new ArrayList<>();
+        List<PetInterface> pets = new ArrayList<>(); // null where no pet has the id
+        if (selector.byIds()) {
+            for (Long id : selector.ids()) {
+                ids.add(id);
+                pets.add(task.getById(id));
+            }
+        } else {
+            Collection<PetInterface> candidates = selector.type() == null
+                    ? task.getMap()
+                    : task.getByPetType(selector.type());
+            for (PetInterface pet : candidates) {
+                if (selector.matches(pet)) {
+                    ids.add(pet.getId());
+                    pets.add(pet);
+                }
+            }
+        }
+        List<CareOutcome> outcomes = new ArrayList<>(pets.size());
+        EnumMap<PetType, List<PetInterface>> changed = new EnumMap<>(PetType.class);
+        long logged = 0;
+        Lock order = journal.changeLock();
+        order.lock();
+        try { // no tick between the actions and their records
+            for (int x = 0; x < pets.size(); x++) {
+                PetInterface pet = pets.get(x);
+                if (pet == null) {
+                    outcomes.add(new CareOutcome(ids.get(x), CareOutcome.Status.NOT_FOUND, null));
+                    continue;
+                }
+                boolean dead;
+                synchronized (pet) { // two actions on one pet are journaled in the order they were applied
+                    dead = !clock.care(pet, action);
+                    if (!dead && pet instanceof CommonModel) {
+                        logged = journal.action(pet.getId(), action);
+                    }
+                }
+                if (!dead && pet instanceof CommonModel) {
+                    changed.computeIfAbsent(pet.getType(), type -> new ArrayList<>()).add(pet);
+                }
+                outcomes.add(new CareOutcome(pet.getId(),
+                        dead ? CareOutcome.Status.DEAD : CareOutcome.Status.CARED, PetSummary.of(pet)));
+            }
+        } finally {
+            order.unlock();
+        }
+        if (!changed.isEmpty()) {
+            journal.sync(logged); // the actions are on disk before the database sees them
+            try {
+                service.updateVitals(changed);
+            } catch (RuntimeException e) {
+                log.warn("Batched update after a bulk {} failed, the pets are left to write-behind", action, e);
+                for (List<PetInterface> group : changed.values()) {
+                    writeBehind.markAllDirty(group);
+                }
+            }
+        }
+        return outcomes;
+    }
+}
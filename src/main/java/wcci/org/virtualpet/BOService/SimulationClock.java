@@ -0,0 +1,170 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import wcci.org.virtualpet.Enums.CareAction;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Counts the ticks of the simulation and knows how time is applied to the pets.
+ * In eager mode every pet is ticked on every tick. In lazy mode a pet keeps the
+ * tick its vitals were last brought up to, and the missed ticks are applied in
+ * one step when the pet is read or cared for. The predicted deaths of the lazy
+ * pets are kept in a timing wheel, so a tick only touches the pets that die.
+ * The vitals of a pet are swapped in atomically, so the clock takes no lock
+ * for an eager tick or care action. A lazy pet is still locked while it is brought up to
+ * date or cared for, as its last tick and predicted death are separate fields
+ * that must move with the vitals.
+ */
+@Component
+public class SimulationClock {
+    private final boolean lazy;
+    private volatile long now; // number of ticks run so far
+    private volatile DeathWheel deaths = new DeathWheel(0);
+
+    public SimulationClock(@Value("${virtualpet.tick.mode:eager}") String mode) {
+        switch (mode) {
+            case "eager":
+                this.lazy = false;
+                break;
+            case "lazy":
+                this.lazy = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tick mode " + mode + ", use eager or lazy");
+        }
+    }
+
+    /**
+     * @return true when pets are only brought up to date when they are used
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return the current tick
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Moves the clock one tick on, only the scheduled task calls this.
+     *
+     * @return the new tick
+     */
+    public long advance() {
+        return advance(1);
+    }
+
+    /**
+     * Moves the clock a number of ticks on, only the scheduled task calls this.
+     *
+     * @param ticks number of ticks
+     * @return the new tick
+     */
+    public long advance(int ticks) {
+        now += ticks;
+        return now;
+    }
+
+    /**
+     * Continues counting from the last tick run before a restart.
+     *
+     * @param tick the last tick
+     */
+    public void resumeFrom(long tick) {
+        this.now = tick;
+        this.deaths = new DeathWheel(tick);
+    }
+
+    /**
+     * Starts the clock of a new or restored pet at the current tick.
+     *
+     * @param pet the pet
+     */
+    public void start(PetInterface pet) {
+        if (pet instanceof CommonModel model) {
+            model.startClockAt(now);
+            if (lazy) {
+                deaths.schedule(model);
+            }
+        }
+    }
+
+    /**
+     * Performs a care action on a live pet. In lazy mode the death of the pet
+     * is predicted again, as the action moved it.
+     *
+     * @param pet    the pet
+     * @param action the action
+     * @return true when the action was applied, false when the pet had died
+     */
+    public boolean care(PetInterface pet, CareAction action) {
+        if (!lazy || !(pet instanceof CommonModel model)) {
+            if (pet.isDead()) {
+                return false;
+            }
+            action.apply(pet);
+            return true;
+        }
+        synchronized (model) { // the same lock as materialize
+            materialize(model); // the action lands after every tick that has run
+            if (model.isDead()) {
+                return false;
+            }
+            action.apply(model);
+            cared(model);
+            return true;
+        }
+    }
+
+    /**
+     * Predicts the death of a pet again after a care action.
+     *
+     * @param pet the pet, its lock is held by the caller
+     */
+    public void cared(PetInterface pet) {
+        if (lazy && pet instanceof CommonModel model) {
+            long before = model.getDeathTick();
+            model.refreshDeathTick();
+            if (model.getDeathTick() != before) {
+                deaths.schedule(model);
+            }
+        }
+    }
+
+    /**
+     * Collects the pets whose predicted death tick has come, only the scheduled
+     * task calls this after moving the clock on.
+     *
+     * @return the pets due to die, not brought up to date yet
+     */
+    public List<CommonModel> dueDeaths() {
+        return deaths.advanceTo(now);
+    }
+
+    /**
+     * Brings the vitals of a pet up to the current tick, only in lazy mode.
+     *
+     * @param pet the pet
+     * @return true when the vitals changed or the pet died
+     */
+    public boolean materialize(PetInterface pet) {
+        if (!lazy || !(pet instanceof CommonModel model)) {
+            return false;
+        }
+        synchronized (model) { // the same lock as the lazy care actions
+            long before = model.getDeathTick();
+            boolean changed = model.advanceTo(now);
+            if (model.getDeathTick() != before) {
+                deaths.schedule(model); // a pet that died on a read is handed to the next tick
+            }
+            return changed;
+        }
+    }
+}
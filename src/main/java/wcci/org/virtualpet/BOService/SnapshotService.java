@@ -0,0 +1,344 @@
+package wcci.org.virtualpet.BOService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.DeathBy;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Periodic binary snapshot of the registry, loaded on startup before the
+ * journal is replayed from the position the snapshot was taken at.
+ *
+ * The file is a header, one fixed-width record per pet and a string table
+ * holding the names. A record is the id, type ordinal, deathBy ordinal, age,
+ * four vitals (health, happiness, hunger, thirst for organic pets, oil and
+ * power for robotic pets), the offset and length of the name, and the tick
+ * and journal position the pet was copied at.
+ *
+ * The snapshot thread copies the pets one at a time while the ticks and care
+ * actions go on. Each copy is taken between two ticks and between two care
+ * actions on the pet, and keeps the tick and journal position it holds the
+ * changes up to, the replay skips the records a copy already holds. Pets
+ * which died before they were copied are not kept.
+ */
+@Service
+public class SnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+    private static final int MAGIC = 0x56505332; // "VPS2"
+    private static final int HEADER = 4 + 8 + 8 + 4 + 4; // magic, tick, journal position, count, names size
+    private static final int RECORD = 8 + 1 + 1 + 2 + 4 * 2 + 4 + 4 + 8 + 8;
+
+    @Resource
+    private PetRegistry registry;
+
+    @Resource
+    private ActionJournal journal;
+
+    @Resource
+    private SimulationClock clock;
+
+    private final int intervalTicks;
+    private final Path path;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pending;
+
+    public SnapshotService(PetRegistry registry, ActionJournal journal, SimulationClock clock,
+            @Value("${virtualpet.snapshot.interval-ticks:0}") int intervalTicks,
+            @Value("${virtualpet.snapshot.path:data/virtualpet.snapshot}") String path) {
+        this.registry = registry;
+        this.journal = journal;
+        this.clock = clock;
+        this.intervalTicks = intervalTicks;
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * @return true when snapshots are switched on
+     */
+    public boolean isEnabled() {
+        return intervalTicks > 0;
+    }
+
+    /**
+     * Takes a snapshot every interval of ticks, called by the scheduled task
+     * between two batches of ticks. A snapshot is skipped while the previous
+     * one is still being taken, the copy and the writing both happen on the
+     * snapshot thread.
+     *
+     * @param tick  number of the tick which just ran
+     * @param count number of ticks in the batch
+     */
+    public void captureIfDue(long tick, int count) {
+        if (!isEnabled() || tick / intervalTicks == (tick - count) / intervalTicks
+                || (pending != null && !pending.isDone())) {
+            return;
+        }
+        pending = writer.submit(this::snapshot);
+    }
+
+    /**
+     * Copies the pets and writes them out. The journal position is read before
+     * the tick, so the replay starts before every tick the copies can miss.
+     */
+    private void snapshot() {
+        long position = journal.position();
+        long tick = clock.now();
+        write(capture(freeze(registry, journal, clock)), tick, position);
+    }
+
+    /**
+     * Copies the state of every pet, one segment of the registry at a time.
+     * A pet is copied under the lock its care actions hold, with the journal
+     * position, so the copy holds exactly the actions journaled before it.
+     * A copy that overlaps a tick is taken again once the tick is over, after
+     * the pass, as no segment may stay locked while a tick is waited for.
+     */
+    private static Frozen freeze(PetRegistry registry, ActionJournal journal, SimulationClock clock) {
+        Frozen frozen = new Frozen(registry.size());
+        List<CommonModel> overlapped = new ArrayList<>();
+        registry.forEach(pet -> {
+            if (pet instanceof CommonModel model && !copy(model, frozen, journal, clock)) {
+                overlapped.add(model);
+            }
+        });
+        for (CommonModel model : overlapped) {
+            while (!copy(model, frozen, journal, clock)) {
+                Lock order = journal.changeLock();
+                order.lock(); // waits for the tick
+                order.unlock();
+            }
+        }
+        return frozen;
+    }
+
+    /**
+     * Copies one pet, lazy pets are brought up to the tick of the copy on the
+     * copied state.
+     *
+     * @return false when a tick ran meanwhile and nothing was copied
+     */
+    private static boolean copy(CommonModel model, Frozen frozen, ActionJournal journal, SimulationClock clock) {
+        long tick = clock.now();
+        if (journal.isTicking()) {
+            return false;
+        }
+        long state;
+        long lastTick;
+        long deathTick;
+        long position;
+        synchronized (model) {
+            state = model.packedState();
+            lastTick = model.getLastTick();
+            deathTick = model.getDeathTick();
+            position = journal.position();
+        }
+        if (journal.isTicking() || clock.now() != tick) {
+            return false;
+        }
+        if (clock.isLazy()) {
+            state = model.stateAt(state, lastTick, deathTick, tick);
+        }
+        if (CommonModel.causeOf(state) == DeathBy.None) {
+            frozen.add(model, state, tick, position);
+        }
+        return true;
+    }
+
+    /**
+     * Lays the copied pets out in the record layout.
+     */
+    private static Capture capture(Frozen frozen) {
+        ByteBuffer records = ByteBuffer.allocate(frozen.count * RECORD);
+        ByteArrayOutputStream names = new ByteArrayOutputStream(frozen.count * 8);
+        for (int x = 0; x < frozen.count; x++) {
+            CommonModel model = frozen.pets[x];
+            byte[] name = model.getName().getBytes(StandardCharsets.UTF_8);
+            long state = frozen.states[x]; // the vitals and the cause of one update
+            records.putLong(model.getId());
+            records.put((byte) model.getType().ordinal());
+            records.put((byte) CommonModel.causeOf(state).ordinal());
+            records.putShort((short) model.getAge());
+            if (model instanceof PetModel) {
+                records.putShort((short) PetModel.health(state));
+                records.putShort((short) PetModel.happiness(state));
+                records.putShort((short) PetModel.hungery(state));
+                records.putShort((short) PetModel.thirst(state));
+            } else {
+                records.putShort((short) RoboticPetModel.oilLevel(state));
+                records.putShort((short) RoboticPetModel.powerLevel(state));
+                records.putShort((short) 0);
+                records.putShort((short) 0);
+            }
+            records.putInt(names.size());
+            records.putInt(name.length);
+            records.putLong(frozen.ticks[x]);
+            records.putLong(frozen.positions[x]);
+            names.write(name, 0, name.length);
+        }
+        records.flip();
+        return new Capture(frozen.count, records, names.toByteArray());
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over the previous
+     * one, so a crash while writing keeps the last complete snapshot.
+     */
+    private void write(Capture capture, long tick, long position) {
+        long start = System.nanoTime();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putLong(tick).putLong(position).putInt(capture.count())
+                    .putInt(capture.names().length).flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] parts = { header, capture.records(), ByteBuffer.wrap(capture.names()) };
+                long remaining = HEADER + capture.records().remaining() + capture.names().length;
+                while (remaining > 0) { // the name table is empty when no pet is left
+                    remaining -= channel.write(parts);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Snapshot of {} pets at tick {} written in {} ms", capture.count(), tick,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            log.warn("Snapshot at tick {} failed", tick, e);
+        }
+    }
+
+    /**
+     * Loads the last snapshot, the file is mapped and the records are read
+     * straight from the mapping.
+     *
+     * @return the snapshot or null when there is none
+     */
+    public Snapshot load() {
+        if (!isEnabled() || !Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("Not a pet snapshot: " + path);
+            }
+            long tick = buffer.getLong();
+            long position = buffer.getLong();
+            int count = buffer.getInt();
+            int namesSize = buffer.getInt();
+            int namesStart = HEADER + count * RECORD;
+            byte[] names = new byte[namesSize];
+            buffer.get(namesStart, names);
+            PetType[] types = PetType.values();
+            DeathBy[] causes = DeathBy.values();
+            List<Copy> pets = new ArrayList<>(count);
+            for (int at = HEADER; at < namesStart; at += RECORD) {
+                PetType type = types[buffer.get(at + 8)];
+                String name = new String(names, buffer.getInt(at + 20), buffer.getInt(at + 24), StandardCharsets.UTF_8);
+                CommonModel pet = PetFactory.create(type, name, buffer.getShort(at + 10));
+                pet.setId(buffer.getLong(at));
+                if (pet instanceof PetModel organic) {
+                    organic.setHealth(buffer.getShort(at + 12));
+                    organic.setHappiness(buffer.getShort(at + 14));
+                    organic.setHungery(buffer.getShort(at + 16));
+                    organic.setThirst(buffer.getShort(at + 18));
+                } else {
+                    RoboticPetModel robotic = (RoboticPetModel) pet;
+                    robotic.setOilLevel(buffer.getShort(at + 12));
+                    robotic.setPowerLevel(buffer.getShort(at + 14));
+                }
+                pet.setDeathBy(causes[buffer.get(at + 9)]); // the setters above may have guessed a cause
+                pets.add(new Copy(pet, buffer.getLong(at + 28), buffer.getLong(at + 36)));
+            }
+            return new Snapshot(tick, position, pets);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not read the snapshot " + path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private record Capture(int count, ByteBuffer records, byte[] names) {
+    }
+
+    /**
+     * The pets, their state longs and where each was copied
+     */
+    private static final class Frozen {
+        private CommonModel[] pets;
+        private long[] states;
+        private long[] ticks;
+        private long[] positions;
+        private int count;
+
+        private Frozen(int capacity) {
+            this.pets = new CommonModel[capacity];
+            this.states = new long[capacity];
+            this.ticks = new long[capacity];
+            this.positions = new long[capacity];
+        }
+
+        private void add(CommonModel pet, long state, long tick, long position) {
+            if (count == pets.length) { // the size read before the copy is only a hint
+                int capacity = Math.max(16, count * 2);
+                pets = Arrays.copyOf(pets, capacity);
+                states = Arrays.copyOf(states, capacity);
+                ticks = Arrays.copyOf(ticks, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+            }
+            pets[count] = pet;
+            states[count] = state;
+            ticks[count] = tick;
+            positions[count] = position;
+            count++;
+        }
+    }
+
+    /**
+     * Pets loaded from a snapshot
+     *
+     * @param tick             the tick the snapshot was taken after
+     * @param journalPosition  where the journal replay resumes
+     * @param pets             the pets
+     */
+    public record Snapshot(long tick, long journalPosition, List<Copy> pets) {
+    }
+
+    /**
+     * One pet of a snapshot
+     *
+     * @param pet             the pet
+     * @param tick            the last tick the copy holds
+     * @param journalPosition the copy holds the actions journaled before this
+     */
+    public record Copy(CommonModel pet, long tick, long journalPosition) {
+    }
+}
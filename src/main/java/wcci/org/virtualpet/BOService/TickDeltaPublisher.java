@@ -0,0 +1,157 @@
+package wcci.org.virtualpet.BOService;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.PetSummary;
+
+/**
+ * Publishes the pets changed by each tick to server-sent event subscribers.
+ * Every subscriber has a bounded buffer and its own sender thread, the tick
+ * only offers to the buffers and never waits. When a buffer is full the
+ * oldest change set is dropped.
+ * In lazy time mode a tick only changes the pets that die on it, the other
+ * pets are published with the current tick when a read brings them up to date.
+ */
+@Component
+public class TickDeltaPublisher {
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    public TickDeltaPublisher(@Value("${virtualpet.stream.buffer-size:16}") int bufferSize,
+            @Value("${virtualpet.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Subscribes to the change sets of the following ticks.
+     *
+     * @param ids     only these pets, empty for every pet
+     * @param petType only pets of this type, null for every type
+     * @return the event stream
+     */
+    public SseEmitter subscribe(Collection<Long> ids, PetType petType) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(ids), petType, bufferSize);
+        subscribers.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        Thread.ofVirtual().name("tick-stream-", subscriber.hashCode()).start(subscriber::send);
+        return emitter;
+    }
+
+    /**
+     * Hands the changes of one tick to every subscriber. Called by the tick
+     * and, in lazy time mode, by the reads that bring pets up to date.
+     *
+     * @param tick    number of the tick
+     * @param changed pets whose vitals changed or who died
+     */
+    public void publish(long tick, List<PetInterface> changed) {
+        if (subscribers.isEmpty() || changed.isEmpty()) {
+            return;
+        }
+        List<PetSummary> summaries = new ArrayList<>(changed.size());
+        for (PetInterface pet : changed) {
+            summaries.add(PetSummary.of(pet));
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(tick, summaries);
+        }
+    }
+
+    /**
+     * @return number of open subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+            subscriber.close();
+        }
+    }
+
+    /**
+     * Change set of one tick as sent to a subscriber
+     *
+     * @param tick    number of the tick
+     * @param dropped change sets this subscriber lost so far because it was too slow
+     * @param pets    the changed pets that match the subscription
+     */
+    public record TickDelta(long tick, long dropped, List<PetSummary> pets) {
+    }
+
+    /**
+     * One open event stream
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<Long> ids;
+        private final PetType petType;
+        private final BlockingQueue<TickDelta> buffer;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean open = true;
+
+        private Subscriber(SseEmitter emitter, Set<Long> ids, PetType petType, int bufferSize) {
+            this.emitter = emitter;
+            this.ids = ids;
+            this.petType = petType;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(long tick, List<PetSummary> summaries) {
+            List<PetSummary> matching = new ArrayList<>();
+            for (PetSummary pet : summaries) {
+                if ((petType == null || pet.type() == petType) && (ids.isEmpty() || ids.contains(pet.id()))) {
+                    matching.add(pet);
+                }
+            }
+            if (matching.isEmpty()) {
+                return;
+            }
+            TickDelta delta = new TickDelta(tick, dropped.get(), matching);
+            while (!buffer.offer(delta)) {
+                if (buffer.poll() != null) { // drop the oldest change set, never wait
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                while (open) {
+                    TickDelta delta = buffer.poll(1, TimeUnit.SECONDS);
+                    if (delta != null) {
+                        emitter.send(SseEmitter.event().name("tick").id(Long.toString(delta.tick())).data(delta));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            open = false;
+            subscribers.remove(this);
+        }
+    }
+}
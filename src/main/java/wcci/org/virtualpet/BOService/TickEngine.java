@@ -0,0 +1,211 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CommonModel;
+
+/**
+ * Runs the passage of time over the whole pet population.
+ * The pets are split into chunks which are ticked in parallel on a fork/join
+ * pool, the pets that died and the pets whose vitals changed are collected
+ * into one batch each.
+ */
+@Component
+public class TickEngine {
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final TickLog log;
+    private volatile TickResult lastResult;
+
+    /**
+     * Constructor with Parameters, no pets are logged
+     *
+     * @param parallelism number of worker threads, 0 uses every core
+     * @param chunkSize   number of pets a worker ticks before it stops splitting
+     */
+    public TickEngine(int parallelism, int chunkSize) {
+        this(parallelism, chunkSize, new TickLog(0));
+    }
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param parallelism number of worker threads, 0 uses every core
+     * @param chunkSize   number of pets a worker ticks before it stops splitting
+     * @param log         logs the sampled pets after they are ticked
+     */
+    @Autowired
+    public TickEngine(@Value("${virtualpet.tick.parallelism:0}") int parallelism,
+            @Value("${virtualpet.tick.chunk-size:2048}") int chunkSize, TickLog log) {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.log = log;
+    }
+
+    /**
+     * Runs one passage of time for every pet.
+     *
+     * @param pets the pets to tick
+     * @return the pets that died or changed and the timing of the tick
+     */
+    public TickResult tick(List<PetInterface> pets) {
+        return tick(pets, 1);
+    }
+
+    /**
+     * Runs a number of passages of time for every pet, each pet takes them in
+     * one step and stops at its death.
+     *
+     * @param pets  the pets to tick
+     * @param ticks number of ticks
+     * @return the pets that died or changed and the timing of the ticks
+     */
+    public TickResult tick(List<PetInterface> pets, int ticks) {
+        long start = System.nanoTime();
+        Outcome outcome = pets.isEmpty()
+                ? new Outcome()
+                : pool.invoke(new Chunk(pets, 0, pets.size(), ticks));
+        TickResult result = new TickResult(pets.size(), outcome.deaths, outcome.changed, System.nanoTime() - start);
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * Handles the pets whose predicted death has come, for the lazy time mode.
+     * Only those pets are brought up to date, the others are not touched.
+     *
+     * @param clock the clock, already moved to the new tick
+     * @param live  tells whether a pet is still in the shelter
+     * @return the pets that died and the timing of the tick
+     */
+    public TickResult expire(SimulationClock clock, Predicate<PetInterface> live) {
+        long start = System.nanoTime();
+        List<CommonModel> due = clock.dueDeaths();
+        List<PetInterface> deaths = new ArrayList<>(due.size());
+        for (CommonModel pet : due) {
+            if (!live.test(pet)) {
+                continue; // adopted since its death was scheduled
+            }
+            clock.materialize(pet);
+            if (pet.isDead()) {
+                deaths.add(pet);
+            }
+        }
+        TickResult result = new TickResult(due.size(), deaths, deaths, System.nanoTime() - start);
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * @return the result of the last tick or null before the first tick
+     */
+    public TickResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * A range of pets, split in half until it is small enough to tick directly
+     */
+    private final class Chunk extends RecursiveTask<Outcome> {
+        private final List<PetInterface> pets;
+        private final int from;
+        private final int to;
+        private final int ticks;
+
+        private Chunk(List<PetInterface> pets, int from, int to, int ticks) {
+            this.pets = pets;
+            this.from = from;
+            this.to = to;
+            this.ticks = ticks;
+        }
+
+        @Override
+        protected Outcome compute() {
+            if (to - from <= chunkSize) {
+                return tickRange();
+            }
+            int middle = (from + to) >>> 1;
+            Chunk left = new Chunk(pets, from, middle, ticks);
+            left.fork();
+            Outcome outcome = new Chunk(pets, middle, to, ticks).compute();
+            outcome.addAll(left.join());
+            return outcome;
+        }
+
+        private Outcome tickRange() {
+            Outcome outcome = new Outcome();
+            for (int x = from; x < to; x++) {
+                PetInterface current = pets.get(x);
+                long before = current.vitalsSignature();
+                if (ticks > 1 && current instanceof CommonModel model) {
+                    model.advance(ticks);
+                } else {
+                    current.passageOfTime(); // one compare and set, a care action may land before or after it
+                }
+                long after = current.vitalsSignature();
+                log.sample(current);
+                if (current.isDead()) {
+                    outcome.deaths.add(current);
+                    outcome.changed.add(current);
+                } else if (before != after) {
+                    outcome.changed.add(current);
+                }
+            }
+            return outcome;
+        }
+    }
+
+    /**
+     * Pets collected by one chunk
+     */
+    private static final class Outcome {
+        private final List<PetInterface> deaths = new ArrayList<>();
+        private final List<PetInterface> changed = new ArrayList<>();
+
+        private void addAll(Outcome other) {
+            deaths.addAll(other.deaths);
+            changed.addAll(other.changed);
+        }
+    }
+
+    /**
+     * Outcome of one tick
+     *
+     * @param processed    number of pets ticked
+     * @param deaths       pets that died during the tick
+     * @param changed      pets whose vitals changed or who died during the tick
+     * @param elapsedNanos time the tick took
+     */
+    public record TickResult(int processed, List<PetInterface> deaths, List<PetInterface> changed,
+            long elapsedNanos) {
+        /**
+         * @return time the tick took in milliseconds
+         */
+        public double elapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+    }
+}
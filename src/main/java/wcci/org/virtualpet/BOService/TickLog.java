@@ -0,0 +1,137 @@
+package wcci.org.virtualpet.BOService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Logging of the tick, kept off the hot path.
+ * A tick logs one summary line and one compact line per death. The vitals of
+ * single pets are only logged for a sample, the pets whose id is a multiple of
+ * the sample rate, so the same pets can be followed from tick to tick.
+ * Lines are rendered into a builder reused by each thread and handed to the
+ * asynchronous appender of logback-spring.xml, the tick never waits on the
+ * console.
+ */
+@Component
+public class TickLog {
+    private static final Logger SUMMARY = LoggerFactory.getLogger("wcci.org.virtualpet.tick");
+    private static final Logger PETS = LoggerFactory.getLogger("wcci.org.virtualpet.tick.pet");
+    private static final Logger DEATHS = LoggerFactory.getLogger("wcci.org.virtualpet.tick.death");
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final int sampleRate;
+    private volatile long tick; // the tick being run, for the sampled lines
+
+    /**
+     * Constructor with Parameters
+     *
+     * @param sampleRate one pet in this many is logged on every tick, 0 logs none
+     */
+    public TickLog(@Value("${virtualpet.log.pet-sample-rate:0}") int sampleRate) {
+        this.sampleRate = Math.max(0, sampleRate);
+    }
+
+    /**
+     * Sets the tick the following sampled lines belong to.
+     *
+     * @param tick the tick being run
+     */
+    public void begin(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Logs the state of a pet after it was ticked, when it is in the sample.
+     * Called by the tick workers for every pet, so the check comes first.
+     *
+     * @param pet the pet
+     */
+    public void sample(PetInterface pet) {
+        if (sampleRate == 0 || pet.getId() % sampleRate != 0 || !PETS.isDebugEnabled()) {
+            return;
+        }
+        StringBuilder line = buffer().append("pet tick=").append(tick);
+        render(line, pet);
+        PETS.debug(line.toString());
+    }
+
+    /**
+     * Logs a death as one compact event.
+     *
+     * @param tick the tick the pet died on
+     * @param pet  the pet
+     */
+    public void death(long tick, CommonModel pet) {
+        if (!DEATHS.isInfoEnabled()) {
+            return;
+        }
+        StringBuilder line = buffer().append("death tick=").append(tick)
+                .append(" id=").append(pet.getId())
+                .append(" type=").append(pet.getType().name())
+                .append(" cause=").append(pet.getDeathBy().name())
+                .append(" age=").append(pet.getAge());
+        DEATHS.info(line.toString());
+    }
+
+    /**
+     * Logs the summary line of a batch of ticks.
+     *
+     * @param tick        the last tick of the batch
+     * @param count       number of ticks in the batch
+     * @param result      outcome of the batch
+     * @param parallelism number of tick workers
+     */
+    public void summary(long tick, int count, TickEngine.TickResult result, int parallelism) {
+        if (!SUMMARY.isInfoEnabled()) {
+            return;
+        }
+        StringBuilder line = buffer().append("tick=").append(tick)
+                .append(" count=").append(count)
+                .append(" pets=").append(result.processed())
+                .append(" changed=").append(result.changed().size())
+                .append(" deaths=").append(result.deaths().size())
+                .append(" threads=").append(parallelism)
+                .append(" ms=");
+        appendMillis(line, result.elapsedNanos());
+        SUMMARY.info(line.toString());
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder line = BUFFER.get();
+        line.setLength(0);
+        return line;
+    }
+
+    /**
+     * Appends the id, type and vitals of a pet, without going through its
+     * toString.
+     */
+    private static void render(StringBuilder line, PetInterface pet) {
+        line.append(" id=").append(pet.getId())
+                .append(" type=").append(pet.getType().name());
+        if (pet instanceof PetModel organic) {
+            long state = organic.packedState(); // the vitals of one update
+            line.append(" health=").append(PetModel.health(state))
+                    .append(" happiness=").append(PetModel.happiness(state))
+                    .append(" hunger=").append(PetModel.hungery(state))
+                    .append(" thirst=").append(PetModel.thirst(state));
+        } else if (pet instanceof RoboticPetModel robotic) {
+            long state = robotic.packedState();
+            line.append(" oil=").append(RoboticPetModel.oilLevel(state))
+                    .append(" power=").append(RoboticPetModel.powerLevel(state));
+        }
+    }
+
+    /**
+     * Appends a duration in milliseconds with one decimal.
+     */
+    private static void appendMillis(StringBuilder line, long nanos) {
+        long tenths = nanos / 100_000;
+        line.append(tenths / 10).append('.').append(tenths % 10);
+    }
+}
@@ -0,0 +1,124 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+
+/**
+ * Runs the ticks of the scheduled task at a fixed rate on its own thread.
+ * Every deadline is counted from the start, so a slow tick does not push the
+ * later ones back. When a tick overruns, the ticks that are owed run as one
+ * batch, up to a maximum, the rest are skipped.
+ * The lag is how far wall-clock time is ahead of the ticks the clock has
+ * actually run. It stays near zero while the shelter keeps up, skipped ticks
+ * are never run and stay in it.
+ */
+@Component
+public class TickScheduler {
+    private static final Logger log = LoggerFactory.getLogger(TickScheduler.class);
+
+    @Resource
+    private ScheduledTask task;
+
+    @Resource
+    private SimulationClock clock;
+
+    private final long periodNanos;
+    private final int maxCatchUp;
+    private final Counter batchedTicks;
+    private final Counter skippedTicks;
+    private volatile long originNanos;
+    private volatile long originTick; // tick of the clock at the start, after a recovery
+    private volatile long logicalTicks; // ticks run or skipped since the start, for the deadlines
+    private volatile boolean running;
+    private Thread thread;
+
+    public TickScheduler(ScheduledTask task, SimulationClock clock, MeterRegistry meters,
+            @Value("${virtualpet.tick.period-ms:5000}") long periodMs,
+            @Value("${virtualpet.tick.max-catch-up:10}") int maxCatchUp) {
+        this.task = task;
+        this.clock = clock;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.batchedTicks = Counter.builder("virtualpet.tick.batched")
+                .description("Ticks run in a batch with the tick before them to catch up")
+                .register(meters);
+        this.skippedTicks = Counter.builder("virtualpet.tick.skipped")
+                .description("Ticks dropped because the shelter was too far behind")
+                .register(meters);
+        TimeGauge.builder("virtualpet.tick.lag", this, TimeUnit.MILLISECONDS, TickScheduler::getLagMillis)
+                .description("Wall-clock time the simulation is behind")
+                .register(meters);
+    }
+
+    /**
+     * Starts ticking once the pets are admitted or recovered.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        originTick = clock.now();
+        originNanos = System.nanoTime();
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("tick-scheduler").start(this::loop);
+    }
+
+    private void loop() {
+        while (running) {
+            long deadline = originNanos + (logicalTicks + 1) * periodNanos;
+            long wait;
+            while (running && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!running) {
+                return;
+            }
+            long owed = (System.nanoTime() - originNanos) / periodNanos - logicalTicks;
+            int batch = (int) Math.min(owed, maxCatchUp);
+            try {
+                task.runTicks(batch);
+            } catch (RuntimeException e) {
+                log.error("Tick failed", e);
+            }
+            if (batch > 1) {
+                batchedTicks.increment(batch - 1);
+            }
+            if (owed > batch) {
+                skippedTicks.increment(owed - batch);
+            }
+            logicalTicks += owed;
+        }
+    }
+
+    /**
+     * @return how far the ticks run by the clock are behind wall-clock time,
+     *         in milliseconds
+     */
+    public double getLagMillis() {
+        if (!running) {
+            return 0;
+        }
+        long simulated = clock.now() - originTick; // skipped ticks are not counted, unlike logicalTicks
+        long behind = System.nanoTime() - (originNanos + (simulated + 1) * periodNanos);
+        return Math.max(0, behind) / 1_000_000.0;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.NANOSECONDS.toMillis(periodNanos) + 1000);
+        }
+    }
+}
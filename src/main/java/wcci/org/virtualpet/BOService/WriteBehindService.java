@@ -0,0 +1,152 @@
+package wcci.org.virtualpet.BOService;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * Write-behind stage for the tick results.
+ * Pets changed by the tick are marked dirty, a pet marked again before it is
+ * written is only kept once. Marking a pet never writes, the dirty pets are
+ * written on a fixed interval as batched JDBC updates per pet type, at most
+ * max-batch pets per update. A batch that fails to write is marked dirty again
+ * and written with the next flush.
+ */
+@Component
+public class WriteBehindService {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindService.class);
+
+    private final ConcurrentMap<Long, PetInterface> dirty = new ConcurrentHashMap<>();
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicLong oldestDirtyNanos = new AtomicLong(); // 0 when nothing is waiting
+    private final AtomicInteger retrying = new AtomicInteger(); // dirty pets left by the last failed flush
+    private final int maxBatch;
+    private final Timer flushTimer;
+    private final Counter flushedPets;
+    private final Counter failedFlushes;
+
+    @Resource
+    private DBService service;
+
+    public WriteBehindService(DBService service, MeterRegistry meters,
+            @Value("${virtualpet.write-behind.max-batch:100000}") int maxBatch) {
+        this.service = service;
+        this.maxBatch = maxBatch;
+        this.flushTimer = Timer.builder("virtualpet.writebehind.flush")
+                .description("Time to write one batch of dirty pets")
+                .register(meters);
+        this.flushedPets = Counter.builder("virtualpet.writebehind.flushed")
+                .description("Pets written by the write-behind stage")
+                .register(meters);
+        this.failedFlushes = Counter.builder("virtualpet.writebehind.failures")
+                .description("Batches of dirty pets that failed to write and were marked dirty again")
+                .register(meters);
+        Gauge.builder("virtualpet.writebehind.queue.size", dirty, Map::size)
+                .description("Dirty pets waiting to be written")
+                .register(meters);
+        Gauge.builder("virtualpet.writebehind.retrying", retrying, AtomicInteger::get)
+                .description("Dirty pets waiting to be written again after a failed flush")
+                .register(meters);
+        TimeGauge.builder("virtualpet.writebehind.lag", this, TimeUnit.MILLISECONDS, WriteBehindService::getLagMillis)
+                .description("Age of the oldest dirty pet that is not written yet")
+                .register(meters);
+    }
+
+    /**
+     * Marks a pet as changed, a pet is only kept once until it is written.
+     *
+     * @param pet the changed pet
+     */
+    public void markDirty(PetInterface pet) {
+        if (dirty.putIfAbsent(pet.getId(), pet) == null) {
+            oldestDirtyNanos.compareAndSet(0, System.nanoTime());
+        }
+    }
+
+    /**
+     * Marks a batch of pets as changed.
+     *
+     * @param pets the changed pets
+     */
+    public void markAllDirty(Collection<? extends PetInterface> pets) {
+        for (PetInterface pet : pets) {
+            markDirty(pet);
+        }
+    }
+
+    /**
+     * Writes every dirty pet, grouped by pet type.
+     */
+    @Scheduled(fixedDelayString = "${virtualpet.write-behind.interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            List<PetInterface> drained = new ArrayList<>(dirty.size());
+            for (Map.Entry<Long, PetInterface> entry : dirty.entrySet()) {
+                if (dirty.remove(entry.getKey(), entry.getValue())) { // changes from now on mark the pet again
+                    drained.add(entry.getValue());
+                }
+            }
+            for (int from = 0; from < drained.size(); from += maxBatch) {
+                List<PetInterface> batch = drained.subList(from, Math.min(from + maxBatch, drained.size()));
+                EnumMap<PetType, List<PetInterface>> byType = new EnumMap<>(PetType.class);
+                for (PetInterface pet : batch) {
+                    byType.computeIfAbsent(pet.getType(), type -> new ArrayList<>()).add(pet);
+                }
+                try {
+                    flushTimer.record(() -> service.updateVitals(byType));
+                } catch (RuntimeException e) {
+                    failedFlushes.increment();
+                    List<PetInterface> unwritten = drained.subList(from, drained.size());
+                    markAllDirty(unwritten); // a pet changed meanwhile is marked already
+                    retrying.set(unwritten.size());
+                    log.warn("Writing {} dirty pets failed, they are written again with the next flush",
+                            unwritten.size(), e);
+                    return; // the oldest dirty pet is still waiting
+                }
+                flushedPets.increment(batch.size());
+            }
+            retrying.set(0);
+            oldestDirtyNanos.set(0);
+            if (!dirty.isEmpty()) { // marked while this flush was writing
+                oldestDirtyNanos.compareAndSet(0, System.nanoTime());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return number of pets waiting to be written
+     */
+    public int getQueueSize() {
+        return dirty.size();
+    }
+
+    /**
+     * @return how long the oldest waiting pet has been dirty, in milliseconds
+     */
+    public double getLagMillis() {
+        long since = oldestDirtyNanos.get();
+        return since == 0 ? 0 : (System.nanoTime() - since) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,186 @@
+package wcci.org.virtualpet.Controllers;
+
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.Resource;
+import wcci.org.virtualpet.BOService.CareOutcome;
+import wcci.org.virtualpet.BOService.PetSelector;
+import wcci.org.virtualpet.BOService.ShelterService;
+import wcci.org.virtualpet.BOService.TickDeltaPublisher;
+import wcci.org.virtualpet.Enums.CareAction;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Enums.Vital;
+import wcci.org.virtualpet.Exceptions.ValidateException;
+import wcci.org.virtualpet.Models.PetSummary;
+
+/**
+ * Shelter Web API: list, admit, adopt, update, feed, play, vet and water, and
+ * care for many pets in one call.
+ * Requests run on virtual threads (spring.threads.virtual.enabled), so the
+ * blocking database calls do not tie up platform threads.
+ */
+@RestController
+@RequestMapping("/api/pets")
+public class ShelterController {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Resource
+    private ShelterService shelter;
+
+    @Resource
+    private TickDeltaPublisher publisher;
+
+    public ShelterController(ShelterService shelter, TickDeltaPublisher publisher) {
+        this.shelter = shelter;
+        this.publisher = publisher;
+    }
+
+    @GetMapping
+    public List<PetSummary> list(@RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) PetType type) {
+        return shelter.list(after, Math.max(1, Math.min(size, MAX_PAGE_SIZE)), type);
+    }
+
+    @GetMapping("/search")
+    public List<PetSummary> search(@RequestParam String name, @RequestParam(defaultValue = "20") int limit) {
+        return shelter.search(name, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    /**
+     * Server-sent event stream of the pets changed by each tick. In lazy time
+     * mode a pet's changes are only sent once a read or a care action brings
+     * it up to date, or when it dies.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(name = "id", required = false) List<Long> ids,
+            @RequestParam(required = false) PetType type) {
+        return publisher.subscribe(ids == null ? List.of() : ids, type);
+    }
+
+    @GetMapping("/{id}")
+    public PetSummary get(@PathVariable long id) {
+        return found(shelter.get(id), id);
+    }
+
+    @PostMapping
+    public ResponseEntity<PetSummary> admit(@RequestBody AdmitRequest request) throws ValidateException {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(shelter.admit(request.name(), request.type(), request.age()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> adopt(@PathVariable long id) {
+        if (!shelter.adopt(id)) {
+            throw notFound(id);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @PutMapping("/{id}")
+    public PetSummary update(@PathVariable long id, @RequestBody UpdateRequest request) throws ValidateException {
+        return found(shelter.update(id, request.name(), request.age()), id);
+    }
+
+    @PostMapping("/{id}/feed")
+    public PetSummary feed(@PathVariable long id) {
+        return found(shelter.care(id, CareAction.FEED), id);
+    }
+
+    @PostMapping("/{id}/play")
+    public PetSummary play(@PathVariable long id) {
+        return found(shelter.care(id, CareAction.PLAY), id);
+    }
+
+    @PostMapping("/{id}/vet")
+    public PetSummary vet(@PathVariable long id) {
+        return found(shelter.care(id, CareAction.HEAL), id);
+    }
+
+    @PostMapping("/{id}/water")
+    public PetSummary water(@PathVariable long id) {
+        return found(shelter.care(id, CareAction.WATER), id);
+    }
+
+    /**
+     * Performs a care action on the pets with the given ids, or on the live
+     * pets of a type and/or with a vital in a range.
+     */
+    @PostMapping("/care")
+    public List<CareOutcome> careAll(@RequestBody CareRequest request) throws ValidateException {
+        if (request.action() == null) {
+            throw new ValidateException("Invalid care action, please try again\nAction can not be empty");
+        }
+        PetSelector selector;
+        if (request.ids() != null) {
+            if (request.type() != null || request.vital() != null) {
+                throw new ValidateException("Select the pets either by ids or by type and vital, not both");
+            }
+            selector = PetSelector.ids(request.ids());
+        } else if (request.vital() != null) {
+            selector = PetSelector.vital(request.type(), request.vital(),
+                    request.min() == null ? 0 : request.min(), request.max() == null ? 100 : request.max());
+        } else if (request.type() != null) {
+            selector = PetSelector.type(request.type());
+        } else {
+            throw new ValidateException("Select the pets by ids, type or vital");
+        }
+        return shelter.careAll(request.action(), selector);
+    }
+
+    @ExceptionHandler(ValidateException.class)
+    public ResponseEntity<String> invalid(ValidateException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private static PetSummary found(PetSummary pet, long id) {
+        if (pet == null) {
+            throw notFound(id);
+        }
+        return pet;
+    }
+
+    private static ResponseStatusException notFound(long id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "No pet with id " + id);
+    }
+
+    /**
+     * Body of an admission
+     *
+     * @param name name of the pet
+     * @param type type of the pet
+     * @param age  age of the pet
+     */
+    public record AdmitRequest(String name, PetType type, int age) {
+    }
+
+    /**
+     * Body of an update, missing fields are left unchanged
+     *
+     * @param name new name of the pet
+     * @param age  new age of the pet
+     */
+    public record UpdateRequest(String name, Integer age) {
+    }
+
+    /**
+     * Body of a bulk care action, the pets are selected by ids, or by type
+     * and/or vital
+     *
+     * @param action the action
+     * @param ids    ids of the pets
+     * @param type   only pets of this type
+     * @param vital  only pets with this vital between min and max
+     * @param min    lowest level of the vital, 0 when missing
+     * @param max    highest level of the vital, 100 when missing
+     */
+    public record CareRequest(CareAction action, List<Long> ids, PetType type, Vital vital, Integer min,
+            Integer max) {
+    }
+}
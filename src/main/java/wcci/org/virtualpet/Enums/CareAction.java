@@ -0,0 +1,50 @@
+package wcci.org.virtualpet.Enums;
+
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * The CareAction enum represents the things a volunteer can do for a pet.
+ */
+public enum CareAction {
+    /**
+     * Feeds the pet.
+     */
+    FEED,
+
+    /**
+     * Plays with the pet.
+     */
+    PLAY,
+
+    /**
+     * Takes the pet to the vet.
+     */
+    HEAL,
+
+    /**
+     * Gives the pet water.
+     */
+    WATER;
+
+    /**
+     * Performs the action on a pet.
+     *
+     * @param pet the pet to care for
+     */
+    public void apply(PetInterface pet) {
+        switch (this) {
+            case FEED:
+                pet.feed();
+                break;
+            case PLAY:
+                pet.play();
+                break;
+            case HEAL:
+                pet.heal();
+                break;
+            case WATER:
+                pet.water();
+                break;
+        }
+    }
+}
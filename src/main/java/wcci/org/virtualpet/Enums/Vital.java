@@ -0,0 +1,74 @@
+package wcci.org.virtualpet.Enums;
+
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.PetModel;
+import wcci.org.virtualpet.Models.RoboticPetModel;
+
+/**
+ * The Vital enum represents the vitals a group of pets can be selected by.
+ */
+public enum Vital {
+    /**
+     * Health of an organic pet.
+     */
+    HEALTH,
+
+    /**
+     * Happiness of an organic pet.
+     */
+    HAPPINESS,
+
+    /**
+     * Hunger of an organic pet.
+     */
+    HUNGER,
+
+    /**
+     * Thirst of an organic pet.
+     */
+    THIRST,
+
+    /**
+     * Oil level of a robotic pet.
+     */
+    OIL,
+
+    /**
+     * Power level of a robotic pet.
+     */
+    POWER;
+
+    /**
+     * Reads the vital of a pet.
+     *
+     * @param pet the pet
+     * @return the level, or -1 when the pet does not have this vital
+     */
+    public int of(PetInterface pet) {
+        if (pet instanceof PetModel organic) {
+            switch (this) {
+                case HEALTH:
+                    return organic.getHealth();
+                case HAPPINESS:
+                    return organic.getHappiness();
+                case HUNGER:
+                    return organic.getHungery();
+                case THIRST:
+                    return organic.getThirst();
+                default:
+                    return -1;
+            }
+        }
+        if (pet instanceof RoboticPetModel robotic) {
+            switch (this) {
+                case OIL:
+                    return robotic.getOilLevel();
+                case POWER:
+                    return robotic.getPowerLevel();
+                default:
+                    return -1;
+            }
+        }
+        return -1;
+    }
+}
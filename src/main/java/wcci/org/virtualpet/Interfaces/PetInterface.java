@@ -13,9 +13,18 @@ public interface PetInterface {
     void feed();
     void play();
     void heal();
+    void water();
     String speak();
     void passageOfTime();
     boolean isDead();
     String checkHealth();
     String checkHappiness();
+
+    /**
+     * Packs the vitals into one value, two calls return the same value only
+     * when no vital changed in between.
+     *
+     * @return the packed vitals
+     */
+    long vitalsSignature();
 }
@@ -1,5 +1,6 @@
 package wcci.org.virtualpet.Models;
 
+import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import wcci.org.virtualpet.Enums.*;
 
@@ -9,8 +10,15 @@ import wcci.org.virtualpet.Enums.*;
  * It includes an implementation of the Speak method specific to cats.
  */
 @Entity
+@DiscriminatorValue("CAT")
 public class CatModel extends PetModel {
 
+    /**
+     * Default Constructor
+     */
+    protected CatModel() {
+    }
+
     /**
      * Constructor to initialize a new CatModel instance.
      *
@@ -1,26 +1,78 @@
 package wcci.org.virtualpet.Models;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongUnaryOperator;
+
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.Column;
+import jakarta.persistence.DiscriminatorColumn;
+import jakarta.persistence.DiscriminatorType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Inheritance;
+import jakarta.persistence.InheritanceType;
 import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import wcci.org.virtualpet.Enums.DeathBy;
 import wcci.org.virtualpet.Enums.PetType;
 import wcci.org.virtualpet.Exceptions.ValidateException;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * Root of the pet entity hierarchy. Every kind of pet is stored in the one
+ * pets table, the type column tells them apart.
+ * The vitals and the cause of death are packed into one long, the subclasses
+ * lay out their vitals in the low bits and the cause of death takes the top
+ * byte. A tick or a care action computes the whole new state and swaps it in
+ * with a compare and set, so concurrent updates of a pet never mix and need
+ * no lock. The columns are mapped through property accessors.
+ */
+@Entity
+@Table(name = "pets")
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "type", discriminatorType = DiscriminatorType.STRING)
+@Access(AccessType.FIELD)
+public abstract class CommonModel implements PetInterface {
+    protected static final int FIELD_BITS = 14; // room for any vital level
+    protected static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final int CAUSE_SHIFT = 56;
+    protected static final long VITALS = (1L << CAUSE_SHIFT) - 1;
+    private static final DeathBy[] CAUSES = DeathBy.values();
+    private static final VarHandle STATE;
 
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(CommonModel.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
-@MappedSuperclass
-public abstract class CommonModel {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "my_seq")
-    @SequenceGenerator(name = "my_seq", sequenceName = "MY_SEQ", allocationSize = 1)
-    private int id;
+    @SequenceGenerator(name = "my_seq", sequenceName = "MY_SEQ", allocationSize = 500) // ids are handed out in pooled blocks
+    private long id;
 
     private String name; // Name of the pet
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", insertable = false, updatable = false) // written through the discriminator
     private PetType type; // Type of the pet (e.g., DOG, CAT)
     private int age; // Age of the pet
-    private DeathBy deathBy; // Reason for the pet's death, if any
+    @Transient
+    private volatile long state; // Vitals in the low bits, reason for the pet's death in the top byte
+    @Transient
+    private long lastTick; // Tick the vitals were last brought up to, lazy time only
+    @Transient
+    private long deathTick = Long.MAX_VALUE; // Tick the pet is predicted to die at, lazy time only
+    @Transient
+    private DeathBy predictedDeathBy = DeathBy.None; // Cause the pet is predicted to die of, lazy time only
    
     public CommonModel() {
     }
@@ -29,12 +81,21 @@ public abstract class CommonModel {
         this.name = name;
         this.type = type;
         this.age = age;
-        this.deathBy = DeathBy.None;
     }
 
 public long getId(){
     return id;
 }
+
+    /**
+     * Sets the id of a pet which is restored from the journal, new pets get
+     * their id from the sequence.
+     *
+     * @param id The id the pet had before.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
     
    /**
      * Gets the name of the pet.
@@ -93,11 +154,21 @@ public long getId(){
 
 
     public DeathBy getDeathBy() {
-        return deathBy;
+        return causeOf(state);
     }
 
     public void setDeathBy(DeathBy deathBy) {
-        this.deathBy = deathBy;
+        update(state -> withCause(state, deathBy));
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "death_by")
+    protected DeathBy getStoredDeathBy() {
+        return getDeathBy();
+    }
+
+    protected void setStoredDeathBy(DeathBy deathBy) {
+        setDeathBy(deathBy == null ? DeathBy.None : deathBy);
     }
 
      /**
@@ -106,9 +177,208 @@ public long getId(){
      * @return True if the pet is dead, otherwise false.
      */
     public boolean isDead() {
-        return !this.deathBy.equals(DeathBy.None);
+        return isDead(state);
+    }
+
+    /**
+     * Reads the vitals and the cause of death in one go, the static accessors
+     * of the subclass decode them. The fields read through the getters one
+     * by one may come from different updates.
+     *
+     * @return The packed state.
+     */
+    public long packedState() {
+        return state;
+    }
+
+    /**
+     * Applies a change to the packed state atomically. The change is a pure
+     * function of the state, it is computed again when another thread updated
+     * the pet in between.
+     *
+     * @param change Computes the new state from the current one.
+     */
+    protected final void update(LongUnaryOperator change) {
+        long current;
+        long next;
+        do {
+            current = state;
+            next = change.applyAsLong(current);
+        } while (next != current && !STATE.compareAndSet(this, current, next));
+    }
+
+    /**
+     * Replaces the vitals and keeps the cause of death.
+     *
+     * @param vitals The packed vitals.
+     */
+    protected final void resetVitals(long vitals) {
+        update(state -> (state & ~VITALS) | (vitals & VITALS));
+    }
+
+    /**
+     * @param state A packed state.
+     * @return The reason for the pet's death, None while alive.
+     */
+    public static DeathBy causeOf(long state) {
+        return CAUSES[(int) (state >>> CAUSE_SHIFT)];
+    }
+
+    protected static boolean isDead(long state) {
+        return state >>> CAUSE_SHIFT != DeathBy.None.ordinal();
+    }
+
+    protected static long withCause(long state, DeathBy cause) {
+        return (state & VITALS) | (long) cause.ordinal() << CAUSE_SHIFT;
+    }
+
+    protected static int field(long state, int index) {
+        return (int) (state >>> (index * FIELD_BITS)) & FIELD_MASK;
+    }
+
+    /**
+     * Keeps a stored vital level within 0 and 100 like the setters do, without
+     * a cause of death, which is stored on its own.
+     *
+     * @param value A vital level read from the database.
+     * @return The level within 0 and 100.
+     */
+    protected static int bounded(int value) {
+        return Math.max(0, Math.min(100, value));
+    }
+
+    protected static long withField(long state, int index, int value) {
+        int shift = index * FIELD_BITS;
+        return (state & ~((long) FIELD_MASK << shift)) | (long) (value & FIELD_MASK) << shift;
+    }
+
+    /**
+     * Gets the tick the vitals were last brought up to.
+     *
+     * @return The last tick applied to the pet.
+     */
+    public long getLastTick() {
+        return lastTick;
     }
 
+    /**
+     * Gets the tick the pet dies at if nobody cares for it.
+     *
+     * @return The predicted tick of death, Long.MAX_VALUE when it never dies.
+     */
+    public long getDeathTick() {
+        return deathTick;
+    }
+
+    /**
+     * Gets the cause the pet dies of if nobody cares for it.
+     *
+     * @return The predicted cause of death.
+     */
+    public DeathBy getPredictedDeathBy() {
+        return predictedDeathBy;
+    }
+
+    /**
+     * Starts counting ticks for the pet from the given tick, its vitals are
+     * taken to be up to date at that tick.
+     *
+     * @param tick The current tick.
+     */
+    public void startClockAt(long tick) {
+        this.lastTick = tick;
+        refreshDeathTick();
+    }
+
+    /**
+     * Brings the vitals up to the given tick in one step.
+     *
+     * @param tick The current tick.
+     * @return True if the vitals changed or the pet died.
+     */
+    public boolean advanceTo(long tick) {
+        if (tick <= lastTick || (isDead() && deathTick <= lastTick)) {
+            return false; // up to date, or time already ran out for the pet
+        }
+        long before = vitalsSignature();
+        boolean wasDead = isDead();
+        advance(tick - lastTick);
+        this.lastTick = tick;
+        if (isDead()) {
+            this.deathTick = tick;
+            this.predictedDeathBy = getDeathBy();
+        } else {
+            predictDeath();
+        }
+        return before != vitalsSignature() || wasDead != isDead();
+    }
+
+    /**
+     * Predicts the tick of death again, after the vitals were changed by a
+     * care action. A pet killed by an action still gets the next tick, as
+     * the eager tick runs every pet that is in the registry.
+     */
+    public void refreshDeathTick() {
+        if (isDead()) {
+            DeathForecast next = forecastDeath(); // the cause can still change on that tick
+            this.deathTick = lastTick + 1;
+            this.predictedDeathBy = next.ticks() == 1 ? next.cause() : getDeathBy();
+        } else {
+            predictDeath();
+        }
+    }
+
+    private void predictDeath() {
+        DeathForecast forecast = forecastDeath();
+        this.deathTick = forecast.ticks() == Long.MAX_VALUE ? Long.MAX_VALUE : lastTick + forecast.ticks();
+        this.predictedDeathBy = forecast.cause();
+    }
+
+    /**
+     * Applies a number of passages of time in one compare and set, so a care
+     * action lands before or after them and never in between.
+     *
+     * @param ticks The number of ticks to apply.
+     */
+    public void advance(long ticks) {
+        update(state -> advanced(state, ticks));
+    }
+
+    /**
+     * Computes the state after a number of passages of time, stopping at the
+     * tick the pet dies. The pet itself is not changed.
+     *
+     * @param state A packed state.
+     * @param ticks The number of ticks to apply.
+     * @return The packed state after the ticks.
+     */
+    public abstract long advanced(long state, long ticks);
+
+    /**
+     * Computes the state a lazy pet has at a later tick from a copy of its
+     * state and clock, with the same rules as advanceTo. The pet itself is
+     * not changed.
+     *
+     * @param state     A packed state.
+     * @param lastTick  The tick the state was brought up to.
+     * @param deathTick The predicted tick of death.
+     * @param tick      The later tick.
+     * @return The packed state at that tick.
+     */
+    public long stateAt(long state, long lastTick, long deathTick, long tick) {
+        if (tick <= lastTick || (isDead(state) && deathTick <= lastTick)) {
+            return state;
+        }
+        return advanced(state, tick - lastTick);
+    }
+
+    /**
+     * Predicts when and how the pet dies if nobody cares for it.
+     *
+     * @return The number of ticks until death and the cause.
+     */
+    public abstract DeathForecast forecastDeath();
+
     /**
      * Abstract method for pet's speech, to be implemented by subclasses.
      *
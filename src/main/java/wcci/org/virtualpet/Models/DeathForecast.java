@@ -0,0 +1,17 @@
+package wcci.org.virtualpet.Models;
+
+import wcci.org.virtualpet.Enums.DeathBy;
+
+/**
+ * When and how a pet dies if nobody cares for it.
+ *
+ * @param ticks number of passages of time the pet survives, Long.MAX_VALUE
+ *              when it never dies
+ * @param cause the cause of death, None when it never dies
+ */
+public record DeathForecast(long ticks, DeathBy cause) {
+    /**
+     * A pet whose vitals stop changing before any of them kills it.
+     */
+    public static final DeathForecast NEVER = new DeathForecast(Long.MAX_VALUE, DeathBy.None);
+}
@@ -1,5 +1,6 @@
 package wcci.org.virtualpet.Models;
 
+import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import wcci.org.virtualpet.Enums.*;
 
@@ -8,8 +9,15 @@ import wcci.org.virtualpet.Enums.*;
  * It includes an implementation of the Speak method specific to dogs.
  */
 @Entity
+@DiscriminatorValue("DOG")
 public class DogModel extends PetModel{
- 
+
+    /**
+     * Default Constructor
+     */
+    protected DogModel() {
+    }
+
     /**
      * Constructor to initialize a new DogModel instance.
      *
@@ -36,13 +44,17 @@ public class DogModel extends PetModel{
     }
     @Override
     public void feed(){
-        if (!isDead()) { // Check if the pet is not dead before performing action
-            this.setHungery(getHungery() - 20); // Decrease hunger
-            this.setHealth(getHealth() + 5); // Increase health
-            this.setHappiness(getHappiness() + 10); // Increase happiness
-            this.setThirst(getThirst() + 10); // Increase thirst
-        }
+        update(DogModel::fed);
     }
 
+    private static long fed(long state) {
+        if (isDead(state)) { // Check if the pet is not dead before performing action
+            return state;
+        }
+        state = withHungery(state, hungery(state) - 20); // Decrease hunger
+        state = withHealth(state, health(state) + 5); // Increase health
+        state = withHappiness(state, happiness(state) + 10); // Increase happiness
+        return withThirst(state, thirst(state) + 10); // Increase thirst
+    }
    
 }
@@ -1,6 +1,9 @@
 package wcci.org.virtualpet.Models;
 
 
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
 import wcci.org.virtualpet.Enums.*;
 import wcci.org.virtualpet.Interfaces.PetInterface;
@@ -11,12 +14,18 @@ import wcci.org.virtualpet.Interfaces.PetInterface;
  * It includes methods to manipulate and check the state of the pet.
  */
 @MappedSuperclass
+@Access(AccessType.FIELD)
 public abstract class PetModel extends CommonModel implements PetInterface {
+    private static final int HEALTH = 0; // Health level of the pet (0-100)
+    private static final int HAPPINESS = 1; // Happiness level of the pet (0-100)
+    private static final int HUNGERY = 2; // Hunger level of the pet (0-100)
+    private static final int THIRST = 3; // Thirst level of the pet (0-100)
 
-    private int health; // Health level of the pet (0-100)
-    private int happiness; // Happiness level of the pet (0-100)
-    private int hungery; // Hunger level of the pet (0-100)
-    private int thirst; // Thirst level of the pet (0-100)
+    /**
+     * Default Constructor
+     */
+    protected PetModel() {
+    }
 
     /**
      * Constructor to initialize a new PetModel instance.
@@ -27,10 +36,27 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      */
     public PetModel(String name, PetType type, int age) {
         super(name, type, age);
-        this.health = 50; // Initialize health to 0
-        this.happiness = 40; // Initialize happiness to 0
-        this.hungery = 20; // Initialize hunger to 0
-        this.thirst = 10; // initialize thrist
+        long vitals = withField(0, HEALTH, 50); // Initialize health
+        vitals = withField(vitals, HAPPINESS, 40); // Initialize happiness
+        vitals = withField(vitals, HUNGERY, 20); // Initialize hunger
+        vitals = withField(vitals, THIRST, 10); // initialize thrist
+        resetVitals(vitals);
+    }
+
+    public static int health(long state) {
+        return field(state, HEALTH);
+    }
+
+    public static int happiness(long state) {
+        return field(state, HAPPINESS);
+    }
+
+    public static int hungery(long state) {
+        return field(state, HUNGERY);
+    }
+
+    public static int thirst(long state) {
+        return field(state, THIRST);
     }
 
     /**
@@ -39,7 +65,7 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @return The pet's health level.
      */
     public int getHealth() {
-        return health;
+        return health(packedState());
     }
 
     /**
@@ -48,13 +74,17 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @param value The new health level.
      */
     public void setHealth(int value) {
+        update(state -> withHealth(state, value));
+    }
+
+    protected static long withHealth(long state, int value) {
         if (value > 100) {
             value = 100; // Ensure health does not exceed 100
         } else if (value <= 0) {
             value = 0; // Ensure health does not go below 0
-            this.setDeathBy(DeathBy.Disease); // Set death reason if health reaches 0
+            state = withCause(state, DeathBy.Disease); // Set death reason if health reaches 0
         }
-        this.health = value;
+        return withField(state, HEALTH, value);
     }
 
     /**
@@ -63,7 +93,7 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @return thirst level
      */
     public int getThirst() {
-        return thirst;
+        return thirst(packedState());
     }
 
     /**
@@ -72,13 +102,17 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @param thirst
      */
     public void setThirst(int thirst) {
+        update(state -> withThirst(state, thirst));
+    }
+
+    protected static long withThirst(long state, int thirst) {
         if (thirst > 100) {
             thirst = 100; // Ensure thirst does not exceed 100
-            this.setDeathBy(DeathBy.Thirst); // Set death reason if thirst reaches 0
+            state = withCause(state, DeathBy.Thirst); // Set death reason if thirst reaches 0
         } else if (thirst <= 0) {
             thirst = 0; // Ensure thirst does not go below 0
         }
-        this.thirst = thirst;
+        return withField(state, THIRST, thirst);
     }
 
     /**
@@ -87,7 +121,7 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @return The pet's happiness level.
      */
     public int getHappiness() {
-        return happiness;
+        return happiness(packedState());
     }
 
     /**
@@ -96,13 +130,17 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @param value The new happiness level.
      */
     public void setHappiness(int value) {
+        update(state -> withHappiness(state, value));
+    }
+
+    protected static long withHappiness(long state, int value) {
         if (value > 100) {
             value = 100; // Ensure happiness does not exceed 100
         } else if (value <= 0) {
             value = 0; // Ensure happiness does not go below 0
-            this.setDeathBy(DeathBy.Loneliness); // Set death reason if happiness reaches 0
+            state = withCause(state, DeathBy.Loneliness); // Set death reason if happiness reaches 0
         }
-        this.happiness = value;
+        return withField(state, HAPPINESS, value);
     }
 
     /**
@@ -111,7 +149,7 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @return The pet's hunger level.
      */
     public int getHungery() {
-        return hungery;
+        return hungery(packedState());
     }
 
     /**
@@ -120,36 +158,90 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * @param value The new hunger level.
      */
     public void setHungery(int value) {
+        update(state -> withHungery(state, value));
+    }
+
+    protected static long withHungery(long state, int value) {
         if (value >= 100) {
             value = 100; // Ensure hunger does not exceed 100
-            this.setDeathBy(DeathBy.Starvation); // Set death reason if hunger reaches 100
+            state = withCause(state, DeathBy.Starvation); // Set death reason if hunger reaches 100
         } else if (value < 0) {
             value = 0; // Ensure hunger does not go below 0
         }
-        this.hungery = value;
+        return withField(state, HUNGERY, value);
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "health")
+    protected int getStoredHealth() {
+        return getHealth();
+    }
+
+    protected void setStoredHealth(int value) {
+        update(state -> withField(state, HEALTH, bounded(value)));
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "happiness")
+    protected int getStoredHappiness() {
+        return getHappiness();
+    }
+
+    protected void setStoredHappiness(int value) {
+        update(state -> withField(state, HAPPINESS, bounded(value)));
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "hungery")
+    protected int getStoredHungery() {
+        return getHungery();
+    }
+
+    protected void setStoredHungery(int value) {
+        update(state -> withField(state, HUNGERY, bounded(value)));
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "thirst")
+    protected int getStoredThirst() {
+        return getThirst();
+    }
+
+    protected void setStoredThirst(int value) {
+        update(state -> withField(state, THIRST, bounded(value)));
     }
 
     /**
      * Waters the pet, decreasing thirst and increasing health and happiness.
      */
     public void water() {
-        if (!isDead()) { // Check if the pet is not dead before performing action
-            this.setThirst(getThirst() - 10); // Decrease thirst
-            this.setHealth(getHealth() + 5); // Increase health
-            this.setHappiness(getHappiness() + 15); // Increase happiness
+        update(PetModel::watered);
+    }
+
+    private static long watered(long state) {
+        if (isDead(state)) { // Check if the pet is not dead before performing action
+            return state;
         }
+        state = withThirst(state, thirst(state) - 10); // Decrease thirst
+        state = withHealth(state, health(state) + 5); // Increase health
+        return withHappiness(state, happiness(state) + 15); // Increase happiness
     }
 
     /**
      * Feeds the pet, decreasing hunger and increasing health and happiness.
      */
     public void feed() {
-        if (!isDead()) { // Check if the pet is not dead before performing action
-            this.setHungery(getHungery() - 10); // Decrease hunger
-            this.setHealth(getHealth() + 5); // Increase health
-            this.setHappiness(getHappiness() + 15); // Increase happiness
-            this.setThirst(getThirst() + 5); // Increase thirst
+        update(PetModel::fed);
+    }
+
+    private static long fed(long state) {
+        if (isDead(state)) { // Check if the pet is not dead before performing action
+            return state;
         }
+        state = withHungery(state, hungery(state) - 10); // Decrease hunger
+        state = withHealth(state, health(state) + 5); // Increase health
+        state = withHappiness(state, happiness(state) + 15); // Increase happiness
+        return withThirst(state, thirst(state) + 5); // Increase thirst
     }
 
     /**
@@ -157,24 +249,34 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * health.
      */
     public void play() {
-        if (!isDead()) { // Check if the pet is not dead before performing action
-            this.setHungery(getHungery() + 15); // Increase hunger
-            this.setHealth(getHealth() + 10); // Increase health
-            this.setHappiness(getHappiness() + 20); // Increase happiness
-            this.setThirst(getThirst() + 15); // Increase thirst
+        update(PetModel::played);
+    }
+
+    private static long played(long state) {
+        if (isDead(state)) { // Check if the pet is not dead before performing action
+            return state;
         }
+        state = withHungery(state, hungery(state) + 15); // Increase hunger
+        state = withHealth(state, health(state) + 10); // Increase health
+        state = withHappiness(state, happiness(state) + 20); // Increase happiness
+        return withThirst(state, thirst(state) + 15); // Increase thirst
     }
 
     /**
      * Heals the pet, increasing hunger, health, and happiness.
      */
     public void heal() {
-        if (!isDead()) { // Check if the pet is not dead before performing action
-            this.setHungery(getHungery() + 15); // Increase hunger
-            this.setHealth(getHealth() + 10); // Increase health
-            this.setHappiness(getHappiness() + 20); // Increase happiness
-            this.setThirst(getThirst() + 10); // Increase thirst
+        update(PetModel::healed);
+    }
+
+    private static long healed(long state) {
+        if (isDead(state)) { // Check if the pet is not dead before performing action
+            return state;
         }
+        state = withHungery(state, hungery(state) + 15); // Increase hunger
+        state = withHealth(state, health(state) + 10); // Increase health
+        state = withHappiness(state, happiness(state) + 20); // Increase happiness
+        return withThirst(state, thirst(state) + 10); // Increase thirst
     }
 
     /**
@@ -182,10 +284,81 @@ public abstract class PetModel extends CommonModel implements PetInterface {
      * health.
      */
     public void passageOfTime() {
-        setHungery(getHungery() + getHungery() / 5); // Increase hunger over time
-        setHappiness(getHappiness() - getHappiness() / 2); // Decrease happiness over time
-        setHealth(getHealth() - getHealth() / 10); // Decrease health over time
-        setThirst(getThirst() + getThirst() / 5); // Increase thirst
+        update(PetModel::aged);
+    }
+
+    private static long aged(long state) {
+        state = withHungery(state, hungery(state) + hungery(state) / 5); // Increase hunger over time
+        state = withHappiness(state, happiness(state) - happiness(state) / 2); // Decrease happiness over time
+        state = withHealth(state, health(state) - health(state) / 10); // Decrease health over time
+        return withThirst(state, thirst(state) + thirst(state) / 5); // Increase thirst
+    }
+
+    /**
+     * The decay always ends in death or in vitals that no longer change, so
+     * the loop stops early at either.
+     */
+    @Override
+    public long advanced(long state, long ticks) {
+        for (long x = 0; x < ticks; x++) {
+            long next = aged(state);
+            if (isDead(next) || (next & VITALS) == (state & VITALS)) {
+                return next; // dead, or later ticks change nothing either
+            }
+            state = next;
+        }
+        return state;
+    }
+
+    /**
+     * Runs the passage of time on copies of the vitals, with the same bounds
+     * as the setters, until one of them kills the pet or none of them changes.
+     * When several vitals run out on the same tick the cause is the last one
+     * set, as in passageOfTime.
+     *
+     * @return the number of ticks until death and the cause
+     */
+    @Override
+    public DeathForecast forecastDeath() {
+        long state = packedState();
+        int hunger = hungery(state);
+        int happy = happiness(state);
+        int healthy = health(state);
+        int thirsty = thirst(state);
+        for (long ticks = 1;; ticks++) {
+            int nextHunger = hunger + hunger / 5;
+            int nextHappy = Math.min(100, happy - happy / 2);
+            int nextHealthy = Math.min(100, healthy - healthy / 10);
+            int nextThirsty = thirsty + thirsty / 5;
+            if (nextThirsty > 100) {
+                return new DeathForecast(ticks, DeathBy.Thirst);
+            } else if (nextHealthy <= 0) {
+                return new DeathForecast(ticks, DeathBy.Disease);
+            } else if (nextHappy <= 0) {
+                return new DeathForecast(ticks, DeathBy.Loneliness);
+            } else if (nextHunger >= 100) {
+                return new DeathForecast(ticks, DeathBy.Starvation);
+            }
+            nextHunger = Math.max(0, nextHunger);
+            nextThirsty = Math.max(0, nextThirsty);
+            if (nextHunger == hunger && nextHappy == happy && nextHealthy == healthy && nextThirsty == thirsty) {
+                return DeathForecast.NEVER;
+            }
+            hunger = nextHunger;
+            happy = nextHappy;
+            healthy = nextHealthy;
+            thirsty = nextThirsty;
+        }
+    }
+
+    /**
+     * Health, happiness, hunger and thirst as they are packed in the state.
+     *
+     * @return the packed vitals
+     */
+    @Override
+    public long vitalsSignature() {
+        return packedState() & VITALS;
     }
 
     /**
@@ -196,8 +369,8 @@ public abstract class PetModel extends CommonModel implements PetInterface {
     public String checkHealth() {
         if (isDead()) { // Check if the pet is dead
             return String.format("%s is Dead from %s", this.getName(), this.getDeathBy()); // Return death reason
-        } else if (this.health < 20) { // Check if health is below 20%
-            return String.format("%s is not healthy at %d%%", this.getName(), this.health); // Return health status
+        } else if (this.getHealth() < 20) { // Check if health is below 20%
+            return String.format("%s is not healthy at %d%%", this.getName(), this.getHealth()); // Return health status
         }
 
         return this.toString(); // Return full pet details if healthy
@@ -211,8 +384,8 @@ public abstract class PetModel extends CommonModel implements PetInterface {
     public String checkHappiness() {
         if (isDead()) { // Check if the pet is dead
             return String.format("%s is Dead from %s", this.getName(), this.getDeathBy()); // Return death reason
-        } else if (this.happiness < 20) { // Check if happiness is below 20%
-            return String.format("%s is not happy at %d%%", this.getName(), this.happiness); // Return happiness status
+        } else if (this.getHappiness() < 20) { // Check if happiness is below 20%
+            return String.format("%s is not happy at %d%%", this.getName(), this.getHappiness()); // Return happiness status
         }
         return this.toString(); // Return full pet details if happy
     }
@@ -230,7 +403,7 @@ public abstract class PetModel extends CommonModel implements PetInterface {
                     + getDeathBy() + "]";
         }
         return "PetModel [id=" + getId() + ", name=" + this.getName() + ", type=" + getType() + ", age=" + getAge()
-                + ", health=" + health
-                + "%, happiness=" + happiness + "%, hungery=" + hungery + "%, thirsty=" + thirst + "%]";
+                + ", health=" + getHealth()
+                + "%, happiness=" + getHappiness() + "%, hungery=" + getHungery() + "%, thirsty=" + getThirst() + "%]";
     }
 }
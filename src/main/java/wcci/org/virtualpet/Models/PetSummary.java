@@ -0,0 +1,71 @@
+package wcci.org.virtualpet.Models;
+
+import wcci.org.virtualpet.Enums.DeathBy;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+
+/**
+ * Compact read-only summary of a pet for list views.
+ * The vitals that do not apply to the kind of pet are null.
+ *
+ * @param id         id of the pet
+ * @param name       name of the pet
+ * @param type       type of the pet
+ * @param age        age of the pet
+ * @param deathBy    reason for the pet's death, None while alive
+ * @param health     health level of an organic pet
+ * @param happiness  happiness level of an organic pet
+ * @param hungery    hunger level of an organic pet
+ * @param thirst     thirst level of an organic pet
+ * @param oilLevel   oil level of a robotic pet
+ * @param powerLevel power level of a robotic pet
+ */
+public record PetSummary(long id, String name, PetType type, int age, DeathBy deathBy,
+        Integer health, Integer happiness, Integer hungery, Integer thirst,
+        Integer oilLevel, Integer powerLevel) {
+
+    /**
+     * Builds a summary from a row of the summary query, the columns are id,
+     * name, type, age, death_by, health, happiness, hungery, thirst, oil_level
+     * and power_level.
+     *
+     * @param row the row
+     * @return the summary
+     */
+    public static PetSummary fromRow(Object[] row) {
+        return new PetSummary(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                PetType.valueOf((String) row[2]),
+                ((Number) row[3]).intValue(),
+                DeathBy.values()[((Number) row[4]).intValue()],
+                toInteger(row[5]), toInteger(row[6]), toInteger(row[7]), toInteger(row[8]),
+                toInteger(row[9]), toInteger(row[10]));
+    }
+
+    /**
+     * Builds a summary of a live pet.
+     *
+     * @param pet the pet
+     * @return the summary
+     */
+    public static PetSummary of(PetInterface pet) {
+        if (pet instanceof PetModel organic) {
+            long state = organic.packedState(); // the vitals and the cause of one update
+            return new PetSummary(organic.getId(), organic.getName(), organic.getType(), organic.getAge(),
+                    CommonModel.causeOf(state), PetModel.health(state), PetModel.happiness(state),
+                    PetModel.hungery(state), PetModel.thirst(state), null, null);
+        }
+        if (pet instanceof RoboticPetModel robotic) {
+            long state = robotic.packedState();
+            return new PetSummary(robotic.getId(), robotic.getName(), robotic.getType(), robotic.getAge(),
+                    CommonModel.causeOf(state), null, null, null, null, RoboticPetModel.oilLevel(state),
+                    RoboticPetModel.powerLevel(state));
+        }
+        throw new IllegalArgumentException("No summary for " + pet.getClass().getSimpleName());
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+}
@@ -1,5 +1,6 @@
 package wcci.org.virtualpet.Models;
 
+import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import wcci.org.virtualpet.Enums.PetType;
 /**
@@ -7,6 +8,7 @@ import wcci.org.virtualpet.Enums.PetType;
  * It includes an implementation of the Speak method specific to cats.
  */
 @Entity
+@DiscriminatorValue("ROBOTIC_CAT")
 public class RoboticCatModel extends RoboticPetModel {
     /**
      * Default Constructor
@@ -20,7 +22,7 @@ public class RoboticCatModel extends RoboticPetModel {
      * @param age age of Cat
      */
     public RoboticCatModel(String name, int age) {
-        super(name, PetType.ROBOTIC_CAT, 1);
+        super(name, PetType.ROBOTIC_CAT, age);
     }
 
     /**
@@ -1,5 +1,6 @@
 package wcci.org.virtualpet.Models;
 
+import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import wcci.org.virtualpet.Enums.*;
 
@@ -8,6 +9,7 @@ import wcci.org.virtualpet.Enums.*;
  * It includes an implementation of the Speak method specific to dogs.
  */
 @Entity
+@DiscriminatorValue("ROBOTIC_DOG")
 public class RoboticDogModel extends RoboticPetModel {
     /**
      * Default Constructor
@@ -1,5 +1,8 @@
 package wcci.org.virtualpet.Models;
 
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.Column;
 import jakarta.persistence.MappedSuperclass;
 import wcci.org.virtualpet.Enums.*;
 import wcci.org.virtualpet.Interfaces.PetInterface;
@@ -8,9 +11,10 @@ import wcci.org.virtualpet.Interfaces.PetInterface;
  * Base abstract model for robotic pets
  */
 @MappedSuperclass
+@Access(AccessType.FIELD)
 public abstract class RoboticPetModel extends CommonModel implements PetInterface {
-    private int oilLevel; // Health level of the pet (0-100)
-    private int powerLevel; // Happiness level of the pet (0-100)
+    private static final int OIL = 0; // Oil level of the pet (0-100)
+    private static final int POWER = 1; // Power level of the pet (0-100)
 
     /**
      * Default Constructor
@@ -27,38 +31,72 @@ public abstract class RoboticPetModel extends CommonModel implements PetInterfac
      */
     public RoboticPetModel(String name, PetType type, int age) {
         super(name, type, age);
-        this.oilLevel = 100;
-        this.powerLevel = 100;
+        resetVitals(withField(withField(0, OIL, 100), POWER, 100));
+    }
+
+    public static int oilLevel(long state) {
+        return field(state, OIL);
+    }
+
+    public static int powerLevel(long state) {
+        return field(state, POWER);
     }
 
     /** gets the oilLevel */
     public int getOilLevel() {
-        return oilLevel;
+        return oilLevel(packedState());
     }
 
     public void setOilLevel(int oilLevel) {
-        this.oilLevel = oilLevel;
-        if (this.oilLevel >= 100) {
-            this.oilLevel = 100;
-        } else if (this.oilLevel <= 0) {
-            this.oilLevel = 0;
-            this.setDeathBy(DeathBy.NoOil);
-        }
+        update(state -> withOilLevel(state, oilLevel));
+    }
 
+    protected static long withOilLevel(long state, int oilLevel) {
+        if (oilLevel >= 100) {
+            oilLevel = 100;
+        } else if (oilLevel <= 0) {
+            oilLevel = 0;
+            state = withCause(state, DeathBy.NoOil);
+        }
+        return withField(state, OIL, oilLevel);
     }
 
     public int getPowerLevel() {
-        return powerLevel;
+        return powerLevel(packedState());
     }
 
     public void setPowerLevel(int powerLevel) {
-        this.powerLevel = powerLevel;
-        if (this.powerLevel >= 100) {
-            this.powerLevel = 100;
+        update(state -> withPowerLevel(state, powerLevel));
+    }
+
+    protected static long withPowerLevel(long state, int powerLevel) {
+        if (powerLevel >= 100) {
+            powerLevel = 100;
         } else if (powerLevel <= 0) {
             powerLevel = 0;
-            this.setDeathBy(DeathBy.NoPower);
+            state = withCause(state, DeathBy.NoPower);
         }
+        return withField(state, POWER, powerLevel);
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "oil_level")
+    protected int getStoredOilLevel() {
+        return getOilLevel();
+    }
+
+    protected void setStoredOilLevel(int oilLevel) {
+        update(state -> withField(state, OIL, bounded(oilLevel)));
+    }
+
+    @Access(AccessType.PROPERTY)
+    @Column(name = "power_level")
+    protected int getStoredPowerLevel() {
+        return getPowerLevel();
+    }
+
+    protected void setStoredPowerLevel(int powerLevel) {
+        update(state -> withField(state, POWER, bounded(powerLevel)));
     }
 
     /**
@@ -66,7 +104,7 @@ public abstract class RoboticPetModel extends CommonModel implements PetInterfac
      */
     @Override
     public void feed() {
-        this.setOilLevel(this.getOilLevel() + 15);
+        update(state -> withOilLevel(state, oilLevel(state) + 15));
     }
 
     /**
@@ -75,19 +113,63 @@ public abstract class RoboticPetModel extends CommonModel implements PetInterfac
      */
     @Override
     public void play() {
-        this.setOilLevel(this.getOilLevel() - 5);
-        this.setPowerLevel(this.getPowerLevel() - 5);
+        update(state -> withPowerLevel(withOilLevel(state, oilLevel(state) - 5), powerLevel(state) - 5));
     }
 
     @Override
     public void heal() {
-        this.setPowerLevel(this.getPowerLevel() + 15);
+        update(state -> withPowerLevel(state, powerLevel(state) + 15));
+    }
+
+    /**
+     * Robotic pets do not drink, watering them changes nothing.
+     */
+    @Override
+    public void water() {
     }
 
     @Override
     public void passageOfTime() {
-        this.setOilLevel(this.getOilLevel() - 10);
-        this.setPowerLevel(this.getPowerLevel() - 10);
+        update(state -> withPowerLevel(withOilLevel(state, oilLevel(state) - 10), powerLevel(state) - 10));
+    }
+
+    /**
+     * Oil and power drop by the same amount every tick, so many ticks are
+     * applied at once, stopping at the tick the pet dies.
+     */
+    @Override
+    public long advanced(long state, long ticks) {
+        int steps = (int) Math.min(ticks, forecast(state).ticks());
+        return withPowerLevel(withOilLevel(state, oilLevel(state) - 10 * steps), powerLevel(state) - 10 * steps);
+    }
+
+    /**
+     * The pet dies on the tick its oil or power reaches zero, power is set
+     * last so it wins when both run out together.
+     *
+     * @return the number of ticks until death and the cause
+     */
+    @Override
+    public DeathForecast forecastDeath() {
+        return forecast(packedState());
+    }
+
+    private static DeathForecast forecast(long state) {
+        int oilTicks = Math.max(1, Math.ceilDiv(oilLevel(state), 10));
+        int powerTicks = Math.max(1, Math.ceilDiv(powerLevel(state), 10));
+        return powerTicks <= oilTicks
+                ? new DeathForecast(powerTicks, DeathBy.NoPower)
+                : new DeathForecast(oilTicks, DeathBy.NoOil);
+    }
+
+    /**
+     * The oil and power levels as they are packed in the state.
+     *
+     * @return the packed vitals
+     */
+    @Override
+    public long vitalsSignature() {
+        return packedState() & VITALS;
     }
 
      /**
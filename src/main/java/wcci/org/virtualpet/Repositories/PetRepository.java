@@ -0,0 +1,55 @@
+package wcci.org.virtualpet.Repositories;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Models.*;
+
+/**
+ * Polymorphic repository over every kind of pet, each query is one SQL
+ * statement on the pets table.
+ */
+@Repository
+public interface PetRepository extends JpaRepository<CommonModel, Long> {
+        List<CommonModel> findByName(String Name);
+
+        List<CommonModel> findByType(PetType type);
+
+        long countByType(PetType type);
+
+        @Query("select p.type, count(p) from CommonModel p group by p.type")
+        List<Object[]> countGroupByType();
+
+        @Query("select p.id, p.type from CommonModel p")
+        List<Object[]> findAllIdsAndTypes();
+
+        List<CommonModel> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+
+        List<CommonModel> findByTypeAndIdGreaterThanOrderByIdAsc(PetType type, long afterId, Limit limit);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+        @Query("select p from CommonModel p order by p.id")
+        Stream<CommonModel> streamAllOrderById();
+
+        /**
+         * Scalar summary rows ordered by id, no entities are created so nothing is
+         * tracked by the persistence context. See {@link PetSummary#fromRow}.
+         */
+        @Query(value = "select id, name, type, age, death_by, health, happiness, hungery, thirst, oil_level, power_level"
+                + " from pets where id > :afterId order by id limit :limit", nativeQuery = true)
+        List<Object[]> findSummaryRows(@Param("afterId") long afterId, @Param("limit") int limit);
+
+        @Query(value = "select id, name, type, age, death_by, health, happiness, hungery, thirst, oil_level, power_level"
+                + " from pets where type = :type and id > :afterId order by id limit :limit", nativeQuery = true)
+        List<Object[]> findSummaryRowsByType(@Param("type") String type, @Param("afterId") long afterId,
+                        @Param("limit") int limit);
+}
@@ -0,0 +1,120 @@
+package wcci.org.virtualpet.BOService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.Enums.*;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the bulk care action of the ShelterService class, in the
+ * package of the service to stand in for its database.
+ */
+class ShelterServiceTest {
+    private final List<Map<PetType, List<PetInterface>>> updates = new ArrayList<>();
+    private boolean failUpdates;
+    private WriteBehindService writeBehind;
+    private ShelterService shelter;
+    private CatModel cat;
+    private DogModel deadDog;
+    private RoboticDogModel robot;
+
+    /**
+     * Sets up a shelter with a live cat, a dead dog and a robotic dog, the
+     * database only records the batched updates.
+     */
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        DBService service = new DBService(null, null, null, null, null, null, null, meters, 500, 10, 1000) {
+            @Override
+            public void updateVitals(Map<PetType, List<PetInterface>> byType) {
+                updates.add(byType);
+                if (failUpdates) {
+                    throw new IllegalStateException("database is down");
+                }
+            }
+
+            @Override
+            public int RemovePet(Long id) {
+                return 0; // nothing is stored
+            }
+        };
+        ActionJournal journal = new ActionJournal(false, "unused", 1, 1);
+        SimulationClock clock = new SimulationClock("eager");
+        PetRegistry registry = new PetRegistry(4);
+        writeBehind = new WriteBehindService(null, meters, 1000);
+        ScheduledTask task = new ScheduledTask(service, registry, new TickEngine(1, 16), writeBehind,
+                new TickDeltaPublisher(16, 1000), journal, new SnapshotService(registry, journal, clock, 0, "unused"),
+                clock, new TickLog(0), meters);
+        shelter = new ShelterService(service, task, null, writeBehind, journal, clock);
+        cat = new CatModel("Fuzzy", 2);
+        cat.setId(1);
+        deadDog = new DogModel("Rex", 3);
+        deadDog.setId(2);
+        deadDog.setHungery(100);
+        robot = new RoboticDogModel("Bolt", 1);
+        robot.setId(3);
+        task.admitAll(List.of(cat, deadDog, robot));
+    }
+
+    /**
+     * Tests that every selected id gets an outcome, in the order of the ids.
+     */
+    @Test
+    void testOutcomesInIdOrder() {
+        List<CareOutcome> outcomes = shelter.careAll(CareAction.PLAY, PetSelector.ids(List.of(3L, 99L, 2L, 1L)));
+        assertEquals(List.of(3L, 99L, 2L, 1L), outcomes.stream().map(CareOutcome::id).toList());
+        assertEquals(CareOutcome.Status.CARED, outcomes.get(0).status());
+        assertEquals(CareOutcome.Status.NOT_FOUND, outcomes.get(1).status());
+        assertNull(outcomes.get(1).pet()); // Check a missing pet has no summary
+        assertEquals(CareOutcome.Status.DEAD, outcomes.get(2).status());
+        assertEquals(CareOutcome.Status.CARED, outcomes.get(3).status());
+        assertEquals(50, deadDog.getHealth()); // Check the dead dog was not played with
+        assertEquals(60, cat.getHealth());
+    }
+
+    /**
+     * Tests that the cared pets are written in one batched update, grouped by
+     * pet type.
+     */
+    @Test
+    void testSingleBatchedUpdate() {
+        shelter.careAll(CareAction.PLAY, PetSelector.ids(List.of(1L, 2L, 3L)));
+        assertEquals(1, updates.size()); // Check there was one update for the whole call
+        assertEquals(Map.of(PetType.CAT, List.of(cat), PetType.ROBOTIC_DOG, List.of(robot)), updates.get(0));
+        assertEquals(0, writeBehind.getQueueSize());
+    }
+
+    /**
+     * Tests that the pets are left to write-behind when the batched update
+     * fails, the actions stay applied.
+     */
+    @Test
+    void testFailedUpdateGoesToWriteBehind() {
+        failUpdates = true;
+        List<CareOutcome> outcomes = shelter.careAll(CareAction.PLAY, PetSelector.ids(List.of(1L, 3L)));
+        assertEquals(2, outcomes.size());
+        assertEquals(CareOutcome.Status.CARED, outcomes.get(0).status());
+        assertEquals(2, writeBehind.getQueueSize()); // Check both pets were queued
+        assertEquals(60, cat.getHealth()); // Check the action was kept
+    }
+
+    /**
+     * Tests that a pet known only in memory is adopted and an unknown id is
+     * not found.
+     */
+    @Test
+    void testAdoptFromMemory() {
+        assertTrue(shelter.adopt(1));
+        assertFalse(shelter.adopt(1)); // Check the pet is gone
+        assertFalse(shelter.adopt(99));
+        assertNull(shelter.care(1, CareAction.PLAY));
+    }
+}
@@ -0,0 +1,112 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.DeathWheel;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the DeathWheel class.
+ */
+class DeathWheelTest {
+    private DeathWheel wheel;
+
+    /**
+     * Sets up a new wheel before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        wheel = new DeathWheel(0);
+    }
+
+    /**
+     * A cat whose death is set by hand.
+     */
+    private static CatModel dueAt(long tick) {
+        CatModel cat = new CatModel("Fuzzy", 2);
+        cat.startClockAt(0);
+        cat.startClockAt(tick - cat.getDeathTick()); // moves the prediction to the tick
+        return cat;
+    }
+
+    /**
+     * Tests that pets come out of the wheel on their tick, on every level.
+     */
+    @Test
+    void testExpiresOnTick() {
+        long[] ticks = { 1, 5, 63, 64, 65, 200, 4095, 4096, 4097, 70000, 262143, 262144, 300001 };
+        Map<Long, CatModel> byTick = new HashMap<>();
+        for (long tick : ticks) {
+            CatModel cat = dueAt(tick);
+            byTick.put(tick, cat);
+            wheel.schedule(cat);
+        }
+        Set<Long> seen = new HashSet<>();
+        for (long now = 1; now <= 300001; now++) {
+            for (CommonModel pet : wheel.advanceTo(now)) {
+                assertEquals(now, pet.getDeathTick()); // Check the pet came out on its tick
+                seen.add(now);
+            }
+        }
+        assertEquals(byTick.keySet(), seen); // Check every pet came out
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that a jump over many ticks collects every pet on the way.
+     */
+    @Test
+    void testAdvanceOverManyTicks() {
+        for (long tick = 1; tick <= 10000; tick += 7) {
+            wheel.schedule(dueAt(tick));
+        }
+        assertEquals(1429, wheel.advanceTo(10000).size());
+    }
+
+    /**
+     * Tests that a rescheduled pet only comes out on its new tick.
+     */
+    @Test
+    void testRescheduleDropsOldEntry() {
+        CatModel cat = dueAt(10);
+        wheel.schedule(cat);
+        cat.startClockAt(20 - (cat.getDeathTick() - cat.getLastTick()));
+        wheel.schedule(cat);
+        assertTrue(wheel.advanceTo(10).isEmpty()); // Check the old entry was dropped
+        assertEquals(List.of(cat), wheel.advanceTo(20));
+    }
+
+    /**
+     * Tests that a pet whose death moved away and back comes out once.
+     */
+    @Test
+    void testRescheduleBackComesOutOnce() {
+        CatModel cat = dueAt(10);
+        wheel.schedule(cat);
+        long lastTick = cat.getLastTick();
+        cat.startClockAt(lastTick + 10); // moves the prediction to tick 20
+        wheel.schedule(cat);
+        cat.startClockAt(lastTick); // and back to tick 10
+        wheel.schedule(cat);
+        assertEquals(10, cat.getDeathTick());
+        assertEquals(List.of(cat), wheel.advanceTo(10)); // Check the pet came out once
+        assertTrue(wheel.advanceTo(20).isEmpty()); // Check the entry for tick 20 was dropped
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that a pet due on the current tick comes out on the next call.
+     */
+    @Test
+    void testLateEntry() {
+        wheel.advanceTo(50);
+        CatModel cat = dueAt(50);
+        wheel.schedule(cat);
+        assertEquals(List.of(cat), wheel.advanceTo(50));
+    }
+}
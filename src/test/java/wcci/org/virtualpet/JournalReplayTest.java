@@ -0,0 +1,243 @@
+package wcci.org.virtualpet;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.*;
+import wcci.org.virtualpet.Enums.*;
+import wcci.org.virtualpet.Models.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the action journal and the snapshots, the shelter rebuilt
+ * from them must match the live shelter even when care actions race with the
+ * ticks.
+ */
+class JournalReplayTest {
+
+    /**
+     * Tests that replaying the journal gives every pet the vitals it has live,
+     * with care actions applied from many threads while the ticks run.
+     */
+    @Test
+    void testReplayWithConcurrentCare() throws Exception {
+        assertReplayMatches("eager", 0, 30);
+    }
+
+    /**
+     * Tests that a snapshot taken while care actions run, with the journal
+     * replayed from its position, gives every pet the vitals it has live.
+     */
+    @Test
+    void testSnapshotWithConcurrentCare() throws Exception {
+        assertReplayMatches("eager", 4, 6);
+        assertReplayMatches("lazy", 4, 6);
+    }
+
+    /**
+     * Tests that a record torn by a crash ends the journal, and that new
+     * records are appended in its place.
+     */
+    @Test
+    void testTornRecordEndsJournal() throws Exception {
+        Path dir = Files.createTempDirectory("journal-torn");
+        Path file = dir.resolve("journal");
+        try {
+            ActionJournal journal = new ActionJournal(true, file.toString(), 1, 1);
+            journal.tick(1);
+            journal.tick(2);
+            long torn = journal.position();
+            journal.tick(3);
+            journal.close();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] { 7 }), torn + 9); // first byte of the body
+            }
+            journal = new ActionJournal(true, file.toString(), 1, 1);
+            assertEquals(List.of(1L, 2L), ticks(journal)); // Check the torn record was dropped
+            assertEquals(torn, journal.position());
+            journal.tick(4);
+            assertEquals(List.of(1L, 2L, 4L), ticks(journal));
+            journal.close();
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static List<Long> ticks(ActionJournal journal) {
+        List<Long> ticks = new ArrayList<>();
+        journal.replay(0, new ActionJournal.Visitor() {
+            public void admitted(long id, PetType type, int age, String name, long state) {
+            }
+
+            public void action(long id, CareAction action, long end) {
+            }
+
+            public void updated(long id, String name, int age) {
+            }
+
+            public void tick(long tick) {
+                ticks.add(tick);
+            }
+
+            public void removed(long id) {
+            }
+        });
+        return ticks;
+    }
+
+    private static void assertReplayMatches(String mode, int snapshotInterval, int batches) throws Exception {
+        Path dir = Files.createTempDirectory("journal-replay");
+        ActionJournal journal = new ActionJournal(true, dir.resolve("journal").toString(), 1, 1);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        SimulationClock clock = new SimulationClock(mode);
+        PetRegistry registry = new PetRegistry(4);
+        WriteBehindService writeBehind = new WriteBehindService(null, meters, 1 << 20);
+        SnapshotService snapshots = new SnapshotService(registry, journal, clock, snapshotInterval,
+                dir.resolve("snapshot").toString());
+        ScheduledTask task = new ScheduledTask(null, registry, new TickEngine(2, 16), writeBehind,
+                new TickDeltaPublisher(16, 1000), journal, snapshots, clock, new TickLog(0), meters);
+        ShelterService shelter = new ShelterService(null, task, null, writeBehind, journal, clock);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<CommonModel> pets = admit(journal, task, 200);
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int x = 0; x < 4; x++) {
+                int seed = x;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    while (running.get()) {
+                        CareAction action = CareAction.values()[random.nextInt(CareAction.values().length)];
+                        shelter.care(1 + random.nextInt(pets.size()), action);
+                    }
+                }));
+            }
+            for (int x = 0; x < batches; x++) {
+                task.runTicks(1 + x % 2);
+            }
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            snapshots.shutdown(); // waits for the snapshot being written
+            assertEquals(snapshotInterval > 0, snapshots.load() != null); // Check a snapshot was loaded
+            assertRebuilt(pets, batches + batches / 2, journal, snapshots, clock);
+        } finally {
+            pool.shutdownNow();
+            journal.close();
+            delete(dir);
+        }
+    }
+
+    /**
+     * Tests that a tick runs while a snapshot is waiting to copy a pet, and
+     * that the snapshot still replays to the live vitals.
+     */
+    @Test
+    void testTickDuringSnapshot() throws Exception {
+        Path dir = Files.createTempDirectory("journal-snapshot");
+        ActionJournal journal = new ActionJournal(true, dir.resolve("journal").toString(), 1, 1);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        SimulationClock clock = new SimulationClock("eager");
+        PetRegistry registry = new PetRegistry(4);
+        WriteBehindService writeBehind = new WriteBehindService(null, meters, 1000);
+        SnapshotService snapshots = new SnapshotService(registry, journal, clock, 1,
+                dir.resolve("snapshot").toString());
+        ScheduledTask task = new ScheduledTask(null, registry, new TickEngine(2, 16), writeBehind,
+                new TickDeltaPublisher(16, 1000), journal, snapshots, clock, new TickLog(0), meters);
+        ShelterService shelter = new ShelterService(null, task, null, writeBehind, journal, clock);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            List<CommonModel> pets = admit(journal, task, 20);
+            synchronized (pets.get(0)) { // the snapshot can not copy this pet
+                task.runTicks(1); // starts the snapshot
+                awaitBlocked("snapshot-writer");
+                shelter.care(2, CareAction.FEED);
+                pool.submit(() -> task.runTicks(1)).get(5, TimeUnit.SECONDS); // Check the tick ran
+                assertNull(snapshots.load()); // Check the snapshot is still being taken
+            }
+            snapshots.shutdown();
+            assertNotNull(snapshots.load());
+            assertRebuilt(pets, 2, journal, snapshots, clock);
+        } finally {
+            pool.shutdownNow();
+            journal.close();
+            delete(dir);
+        }
+    }
+
+    private static List<CommonModel> admit(ActionJournal journal, ScheduledTask task, int count) {
+        List<CommonModel> pets = new ArrayList<>();
+        for (int x = 0; x < count; x++) {
+            CommonModel pet = PetFactory.create(PetType.values()[x % PetType.values().length], "Pet" + x, 3);
+            pet.setId(x + 1); // the id is normally set by the database
+            if (pet instanceof PetModel organic) { // starting vitals of a generated population
+                organic.setHappiness(40 + x % 50);
+            } else {
+                ((RoboticPetModel) pet).setOilLevel(40 + x % 50);
+            }
+            pets.add(pet);
+        }
+        Lock order = journal.changeLock();
+        order.lock();
+        try {
+            journal.admitted(pets);
+            task.admitAll(pets);
+        } finally {
+            order.unlock();
+        }
+        return pets;
+    }
+
+    private static void assertRebuilt(List<CommonModel> pets, long lastTick, ActionJournal journal,
+            SnapshotService snapshots, SimulationClock clock) {
+        RecoveryService.Recovered recovered = new RecoveryService(journal, null, null, snapshots).rebuild();
+        Map<Long, CommonModel> rebuilt = new HashMap<>();
+        for (CommonModel pet : recovered.pets()) {
+            rebuilt.put(pet.getId(), pet);
+        }
+        assertEquals(lastTick, recovered.lastTick()); // Check every tick was journaled
+        for (CommonModel pet : pets) {
+            clock.materialize(pet);
+            CommonModel copy = rebuilt.get(pet.getId());
+            if (copy == null) {
+                assertTrue(snapshots.isEnabled() && pet.isDead(), "Pet " + pet.getId() + " is missing");
+                continue; // died before the snapshot
+            }
+            assertEquals(pet.packedState(), copy.packedState(),
+                    "Vitals of pet " + pet.getId()); // Check the pet matches its live copy
+        }
+    }
+
+    private static void awaitBlocked(String name) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals(name) && thread.getState() == Thread.State.BLOCKED) {
+                    return;
+                }
+            }
+            Thread.sleep(1);
+        }
+        fail(name + " did not block");
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,64 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.NameIndex;
+
+import java.util.List;
+import java.util.Set;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the NameIndex class.
+ */
+class NameIndexTest {
+    private NameIndex index;
+
+    /**
+     * Sets up an index with a few names before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        index = new NameIndex();
+        index.add(1, "Fuzzy");
+        index.add(2, "Smokey");
+        index.add(3, "Molly");
+        index.add(4, "Moon");
+    }
+
+    /**
+     * Tests short and long substring searches, case is ignored.
+     */
+    @Test
+    void testFindContaining() {
+        assertEquals(Set.of(2L, 3L, 4L), new HashSet<>(index.findContaining("mo", 10))); // Check a short query
+        assertEquals(List.of(2L), index.findContaining("OKEY", 10)); // Check a long query
+        assertTrue(index.findContaining("rex", 10).isEmpty()); // Check no match
+        assertEquals(1, index.findContaining("o", 1).size()); // Check the limit
+    }
+
+    /**
+     * Tests prefix searches.
+     */
+    @Test
+    void testFindByPrefix() {
+        assertEquals(List.of(3L, 4L), index.findByPrefix("Mo", 10)); // Check name order
+        assertEquals(List.of(2L), index.findByPrefix("smo", 10));
+    }
+
+    /**
+     * Tests that renamed and removed pets are no longer found.
+     */
+    @Test
+    void testRenameAndRemove() {
+        index.add(1, "Rocky");
+        assertTrue(index.findContaining("fuzz", 10).isEmpty()); // Check the old name is gone
+        assertEquals(List.of(1L), index.findByPrefix("rock", 10)); // Check the new name is found
+        index.remove(1);
+        assertTrue(index.findByPrefix("rock", 10).isEmpty()); // Check the pet was removed
+        assertEquals(3, index.size());
+    }
+}
@@ -0,0 +1,102 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.Enums.DeathBy;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the vitals packed into the state of a pet.
+ */
+class PackedStateTest {
+
+    /**
+     * Tests that the decoders read the same vitals as the getters.
+     */
+    @Test
+    void testDecode() {
+        CatModel cat = new CatModel("Fuzzy", 2);
+        long state = cat.packedState();
+        assertEquals(50, PetModel.health(state));
+        assertEquals(40, PetModel.happiness(state));
+        assertEquals(20, PetModel.hungery(state));
+        assertEquals(10, PetModel.thirst(state));
+        assertEquals(DeathBy.None, CommonModel.causeOf(state));
+        RoboticDogModel dog = new RoboticDogModel("Rex", 3);
+        assertEquals(100, RoboticPetModel.oilLevel(dog.packedState()));
+        assertEquals(100, RoboticPetModel.powerLevel(dog.packedState()));
+    }
+
+    /**
+     * Tests that the vital and the cause of death change in the same update.
+     */
+    @Test
+    void testCauseWithVitals() {
+        CatModel cat = new CatModel("Fuzzy", 2);
+        cat.setHungery(100);
+        long state = cat.packedState();
+        assertEquals(100, PetModel.hungery(state));
+        assertEquals(DeathBy.Starvation, CommonModel.causeOf(state));
+        RoboticCatModel robot = new RoboticCatModel("Moon", 2);
+        robot.setPowerLevel(-30);
+        assertEquals(0, robot.getPowerLevel()); // Check the power does not go below 0
+        assertEquals(DeathBy.NoPower, robot.getDeathBy());
+    }
+
+    /**
+     * Tests that vitals loaded from the database are kept within 0 and 100
+     * instead of wrapping around in their packed field, without guessing a
+     * cause of death.
+     */
+    @Test
+    void testStoredVitalsBounded() {
+        CatModel cat = new CatModel("Fuzzy", 2) {
+            {
+                setStoredHealth(20000);
+                setStoredThirst(-1);
+            }
+        };
+        assertEquals(100, cat.getHealth());
+        assertEquals(0, cat.getThirst());
+        assertEquals(DeathBy.None, cat.getDeathBy()); // Check the stored cause is left alone
+        RoboticDogModel dog = new RoboticDogModel("Rex", 3) {
+            {
+                setStoredOilLevel(16384);
+                setStoredPowerLevel(-5);
+            }
+        };
+        assertEquals(100, dog.getOilLevel());
+        assertEquals(0, dog.getPowerLevel());
+    }
+
+    /**
+     * Tests that care actions from many threads are all applied.
+     */
+    @Test
+    void testConcurrentCare() throws Exception {
+        RoboticDogModel dog = new RoboticDogModel("Rex", 3);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int x = 0; x < 4; x++) {
+                futures.add(pool.submit(() -> {
+                    for (int y = 0; y < 4; y++) {
+                        dog.play();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(20, dog.getOilLevel()); // Check none of the 16 plays was lost
+        assertEquals(20, dog.getPowerLevel());
+    }
+}
@@ -0,0 +1,92 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import wcci.org.virtualpet.BOService.PetCache;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PetCache class.
+ */
+class PetCacheTest {
+    private SimpleMeterRegistry meters;
+    private PetCache<Long, String> cache;
+
+    /**
+     * Sets up a cache of two entries before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        meters = new SimpleMeterRegistry();
+        cache = new PetCache<>("test", 2, 60_000, meters);
+    }
+
+    /**
+     * Tests that a second lookup is served from the cache.
+     */
+    @Test
+    void testReadThrough() {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("Fuzzy", cache.get(1L, id -> { loads.incrementAndGet(); return "Fuzzy"; }));
+        assertEquals("Fuzzy", cache.get(1L, id -> { loads.incrementAndGet(); return "Other"; }));
+        assertEquals(1, loads.get()); // Check the value was loaded once
+        assertEquals(1.0, meters.get("virtualpet.cache.hits").counter().count()); // Check the hit was counted
+    }
+
+    /**
+     * Tests eviction of the least recently used entry and invalidation.
+     */
+    @Test
+    void testEvictionAndInvalidate() {
+        cache.get(1L, id -> "Fuzzy");
+        cache.get(2L, id -> "Zake");
+        cache.get(3L, id -> "Smokey");
+        assertEquals(2, cache.size()); // Check the cache stays bounded
+        assertEquals(1.0, meters.get("virtualpet.cache.evictions").counter().count());
+        cache.invalidate(3L);
+        assertEquals("Molly", cache.get(3L, id -> "Molly")); // Check the value is loaded again
+    }
+
+    /**
+     * Tests that concurrent misses for one key share a single load. The first
+     * load is held until the second lookup has missed the cache, so the second
+     * lookup has to join it.
+     */
+    @Test
+    void testSingleFlight() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Callable<String> lookup = () -> cache.get(7L, id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "Spot";
+            });
+            Future<String> first = pool.submit(lookup);
+            assertTrue(loading.await(10, TimeUnit.SECONDS)); // Check the first lookup is loading
+            Future<String> second = pool.submit(lookup);
+            while (meters.get("virtualpet.cache.misses").counter().count() < 2) {
+                Thread.onSpinWait(); // the second lookup missed while the first still holds the load
+            }
+            release.countDown();
+            assertEquals("Spot", first.get());
+            assertEquals("Spot", second.get());
+            assertEquals(1, loads.get()); // Check only one load ran
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
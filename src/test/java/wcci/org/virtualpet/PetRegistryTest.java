@@ -0,0 +1,133 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.PetRegistry;
+import wcci.org.virtualpet.Enums.PetType;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.CatModel;
+import wcci.org.virtualpet.Models.DogModel;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PetRegistry class.
+ */
+class PetRegistryTest {
+    private PetRegistry registry;
+
+    /**
+     * Creates a cat with a fixed id, the id is normally set by the database.
+     */
+    private static PetInterface cat(long id, String name) {
+        return new CatModel(name, 3) {
+            @Override
+            public long getId() {
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Creates a dog with a fixed id, the id is normally set by the database.
+     */
+    private static PetInterface dog(long id, String name) {
+        return new DogModel(name, 3) {
+            @Override
+            public long getId() {
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Sets up a new registry before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        registry = new PetRegistry(4);
+    }
+
+    /**
+     * Tests adding and finding pets by id.
+     */
+    @Test
+    void testPutAndGetById() {
+        PetInterface fuzzy = cat(1, "Fuzzy");
+        PetInterface spot = dog(2, "Spot");
+        registry.put(fuzzy);
+        registry.put(spot);
+        assertEquals(2, registry.size()); // Check both pets were added
+        assertSame(fuzzy, registry.getById(1)); // Check lookup of the cat
+        assertSame(spot, registry.getById(2)); // Check lookup of the dog
+        assertNull(registry.getById(3)); // Check unknown id
+    }
+
+    /**
+     * Tests that ids do not need to be contiguous.
+     */
+    @Test
+    void testSparseIds() {
+        registry.put(cat(5, "Smokey"));
+        registry.put(cat(1000, "Molly"));
+        registry.put(dog(77, "Rocky"));
+        assertEquals(3, registry.values().size()); // Check every pet is visited
+        registry.removeById(1000L);
+        assertEquals(2, registry.size()); // Check the pet was removed
+        assertNull(registry.getById(1000));
+    }
+
+    /**
+     * Tests removing a batch of pets.
+     */
+    @Test
+    void testRemoveAll() {
+        PetInterface fuzzy = cat(1, "Fuzzy");
+        PetInterface zake = cat(2, "Zake");
+        PetInterface spot = dog(3, "Spot");
+        registry.put(fuzzy);
+        registry.put(zake);
+        registry.put(spot);
+        registry.removeAll(List.of(fuzzy, spot));
+        assertEquals(1, registry.size()); // Check only one pet is left
+        assertSame(zake, registry.getById(2));
+    }
+
+    /**
+     * Tests the pet type partitions.
+     */
+    @Test
+    void testByPetType() {
+        PetInterface fuzzy = cat(1, "Fuzzy");
+        registry.put(fuzzy);
+        registry.put(cat(2, "Zake"));
+        registry.put(dog(3, "Spot"));
+        assertEquals(2, registry.countByType(PetType.CAT)); // Check the cat count
+        assertEquals(1, registry.getByPetType(PetType.DOG).size()); // Check the dog partition
+        assertEquals(0, registry.countByType(PetType.ROBOTIC_DOG)); // Check an empty partition
+        registry.removeAll(List.of(fuzzy));
+        assertEquals(1, registry.countByType(PetType.CAT)); // Check the removal is reflected
+    }
+
+    /**
+     * Tests that renaming a removed pet does not add it back to the segments,
+     * the type partitions or the name index.
+     */
+    @Test
+    void testRenameRemovedPet() {
+        PetInterface fuzzy = cat(1, "Fuzzy");
+        registry.put(fuzzy);
+        registry.removeAll(List.of(fuzzy));
+        assertFalse(registry.rename(fuzzy));
+        assertNull(registry.getById(1));
+        assertEquals(0, registry.countByType(PetType.CAT)); // Check the partition is empty
+        assertTrue(registry.values().isEmpty());
+        assertTrue(registry.findByName("fuz", 10).isEmpty()); // Check the name is not indexed
+        PetInterface spot = dog(2, "Spot");
+        registry.put(spot);
+        assertTrue(registry.rename(spot));
+    }
+}
@@ -0,0 +1,58 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.PetSelector;
+import wcci.org.virtualpet.Enums.*;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PetSelector class and the Vital enum.
+ */
+class PetSelectorTest {
+
+    /**
+     * Tests that the vitals are read from the matching kind of pet.
+     */
+    @Test
+    void testVitalOf() {
+        CatModel cat = new CatModel("Fuzzy", 2);
+        RoboticDogModel dog = new RoboticDogModel("Rex", 3);
+        assertEquals(20, Vital.HUNGER.of(cat));
+        assertEquals(10, Vital.THIRST.of(cat));
+        assertEquals(-1, Vital.OIL.of(cat)); // Check a cat has no oil level
+        assertEquals(100, Vital.POWER.of(dog));
+        assertEquals(-1, Vital.HEALTH.of(dog)); // Check a robot has no health
+    }
+
+    /**
+     * Tests that a vital range only matches pets with the vital in range.
+     */
+    @Test
+    void testVitalRange() {
+        PetSelector selector = PetSelector.vital(null, Vital.HUNGER, 15, 30);
+        CatModel cat = new CatModel("Fuzzy", 2);
+        assertTrue(selector.matches(cat));
+        cat.feed();
+        assertFalse(selector.matches(cat)); // Check a fed cat is below the range
+        assertFalse(selector.matches(new RoboticCatModel("Moon", 2))); // Check pets without the vital
+        assertFalse(selector.byIds());
+    }
+
+    /**
+     * Tests that selectors by id and by type match every pet they are given.
+     */
+    @Test
+    void testIdsAndType() {
+        PetSelector ids = PetSelector.ids(List.of(3L, 1L));
+        assertTrue(ids.byIds());
+        assertEquals(List.of(3L, 1L), ids.ids()); // Check the order is kept
+        PetSelector type = PetSelector.type(PetType.DOG);
+        assertEquals(PetType.DOG, type.type());
+        assertTrue(type.matches(new DogModel("Spot", 4)));
+    }
+}
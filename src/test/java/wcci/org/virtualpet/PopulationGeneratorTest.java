@@ -0,0 +1,93 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.PopulationGenerator;
+import wcci.org.virtualpet.Enums.*;
+import wcci.org.virtualpet.Interfaces.PetInterface;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the PopulationGenerator class, without admitting the pets.
+ */
+class PopulationGeneratorTest {
+
+    private PopulationGenerator generator(String mix, String distribution, int spread) {
+        return new PopulationGenerator(null, 1000, 42, mix, 2, 15, distribution, spread, 100, 2);
+    }
+
+    /**
+     * Tests that the same seed gives the same pets.
+     */
+    @Test
+    void testReproducible() {
+        PopulationGenerator generator = generator("CAT:1,DOG:1,ROBOTIC_CAT:1,ROBOTIC_DOG:1", "normal", 20);
+        List<PetInterface> first = generator.generate(0, 500, new SplittableRandom(7));
+        List<PetInterface> second = generator.generate(0, 500, new SplittableRandom(7));
+        for (int x = 0; x < first.size(); x++) {
+            CommonModel a = (CommonModel) first.get(x);
+            CommonModel b = (CommonModel) second.get(x);
+            assertEquals(a.getName(), b.getName());
+            assertEquals(a.getType(), b.getType());
+            assertEquals(a.getAge(), b.getAge());
+            assertEquals(a.vitalsSignature(), b.vitalsSignature()); // Check the vitals
+        }
+    }
+
+    /**
+     * Tests that only the types of the mix are generated, in about its
+     * proportions.
+     */
+    @Test
+    void testMix() {
+        PopulationGenerator generator = generator("CAT:3,ROBOTIC_DOG:1", "uniform", 0);
+        Map<PetType, Integer> counts = new EnumMap<>(PetType.class);
+        for (PetInterface pet : generator.generate(0, 4000, new SplittableRandom(1))) {
+            counts.merge(pet.getType(), 1, Integer::sum);
+        }
+        assertEquals(Set.of(PetType.CAT, PetType.ROBOTIC_DOG), counts.keySet());
+        assertTrue(Math.abs(counts.get(PetType.CAT) - 3000) < 150); // Check the weights
+    }
+
+    /**
+     * Tests that ages stay in range and no pet starts dead.
+     */
+    @Test
+    void testBounds() {
+        PopulationGenerator generator = generator("CAT:1,DOG:1,ROBOTIC_CAT:1,ROBOTIC_DOG:1", "uniform", 200);
+        for (PetInterface pet : generator.generate(0, 2000, new SplittableRandom(3))) {
+            CommonModel model = (CommonModel) pet;
+            assertTrue(model.getAge() >= 2 && model.getAge() <= 15);
+            assertEquals(DeathBy.None, model.getDeathBy());
+        }
+    }
+
+    /**
+     * Tests that a mix without any type is refused.
+     */
+    @Test
+    void testInvalidMix() {
+        assertThrows(IllegalArgumentException.class, () -> generator("CAT:0", "uniform", 0));
+        assertThrows(IllegalArgumentException.class, () -> generator("CAT", "uniform", 0));
+        assertThrows(IllegalArgumentException.class, () -> generator("CAT:1", "zipf", 0));
+    }
+
+    /**
+     * Tests that ages outside of 1 to 20 are refused.
+     */
+    @Test
+    void testInvalidAges() {
+        assertThrows(IllegalArgumentException.class, () -> ages(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> ages(2, 21));
+        assertThrows(IllegalArgumentException.class, () -> ages(8, 4));
+        assertEquals(10, ages(1, 20).getSize());
+    }
+
+    private PopulationGenerator ages(int minAge, int maxAge) {
+        return new PopulationGenerator(null, 10, 42, "CAT:1", minAge, maxAge, "uniform", 0, 10, 1);
+    }
+}
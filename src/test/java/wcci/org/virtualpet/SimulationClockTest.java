@@ -0,0 +1,111 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.Test;
+
+import wcci.org.virtualpet.BOService.PetFactory;
+import wcci.org.virtualpet.BOService.SimulationClock;
+import wcci.org.virtualpet.Enums.*;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the lazy time mode, a pet brought up to date in one step must
+ * end up like a pet ticked on every tick.
+ */
+class SimulationClockTest {
+
+    /**
+     * Tests that lazy pets match eager pets under random care actions, and die
+     * on the tick that was predicted.
+     */
+    @Test
+    void testLazyMatchesEager() {
+        Random random = new Random(7);
+        SimulationClock clock = new SimulationClock("lazy");
+        for (PetType type : PetType.values()) {
+            for (int run = 0; run < 50; run++) {
+                CommonModel eager = PetFactory.create(type, "Eager", 3);
+                CommonModel lazy = PetFactory.create(type, "Lazy", 3);
+                clock.resumeFrom(0);
+                clock.start(lazy);
+                while (!eager.isDead()) {
+                    if (random.nextInt(4) == 0) {
+                        CareAction action = CareAction.values()[random.nextInt(CareAction.values().length)];
+                        action.apply(eager);
+                        clock.materialize(lazy);
+                        action.apply(lazy);
+                        clock.cared(lazy);
+                    }
+                    eager.passageOfTime();
+                    clock.advance();
+                    if (eager.isDead()) {
+                        assertEquals(clock.now(), lazy.getDeathTick()); // Check the death was predicted
+                        assertEquals(eager.getDeathBy(), lazy.getPredictedDeathBy()); // Check the cause
+                    }
+                }
+                clock.materialize(lazy);
+                assertEquals(eager.vitalsSignature(), lazy.vitalsSignature()); // Check the vitals
+                assertEquals(eager.getDeathBy(), lazy.getDeathBy()); // Check the cause of death
+            }
+        }
+    }
+
+    /**
+     * Tests that the deaths come out of the clock on the tick the pets die.
+     */
+    @Test
+    void testDueDeaths() {
+        SimulationClock clock = new SimulationClock("lazy");
+        List<CommonModel> pets = new ArrayList<>();
+        for (PetType type : PetType.values()) {
+            CommonModel pet = PetFactory.create(type, "Pet", 3);
+            clock.start(pet);
+            pets.add(pet);
+        }
+        pets.get(0).feed();
+        clock.cared(pets.get(0));
+        Set<CommonModel> dead = new HashSet<>();
+        for (int x = 0; x < 100 && dead.size() < pets.size(); x++) {
+            clock.advance();
+            for (CommonModel pet : clock.dueDeaths()) {
+                clock.materialize(pet);
+                assertTrue(pet.isDead()); // Check only dying pets come out
+                assertTrue(dead.add(pet)); // Check each pet comes out once
+            }
+        }
+        assertEquals(pets.size(), dead.size()); // Check every pet died
+    }
+
+    /**
+     * Tests that a pet is not changed by ticks after it died.
+     */
+    @Test
+    void testDeadPetStaysDead() {
+        SimulationClock clock = new SimulationClock("lazy");
+        DogModel dog = new DogModel("Spot", 3);
+        clock.start(dog);
+        for (int x = 0; x < 100; x++) {
+            clock.advance();
+        }
+        assertTrue(clock.materialize(dog)); // Check the dog died
+        long signature = dog.vitalsSignature();
+        clock.advance();
+        assertFalse(clock.materialize(dog)); // Check nothing changed
+        assertEquals(signature, dog.vitalsSignature());
+    }
+
+    /**
+     * Tests that eager mode leaves the pets alone.
+     */
+    @Test
+    void testEagerDoesNotMaterialize() {
+        SimulationClock clock = new SimulationClock("eager");
+        CatModel cat = new CatModel("Fuzzy", 2);
+        clock.advance();
+        assertFalse(clock.materialize(cat));
+        assertEquals(40, cat.getHappiness()); // Check the cat was not ticked
+    }
+}
@@ -0,0 +1,92 @@
+package wcci.org.virtualpet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import wcci.org.virtualpet.BOService.TickLog;
+import wcci.org.virtualpet.Models.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TickLog class.
+ */
+class TickLogTest {
+    private Logger logger;
+    private ListAppender<ILoggingEvent> events;
+
+    /**
+     * Captures the tick loggers before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        logger = (Logger) LoggerFactory.getLogger("wcci.org.virtualpet.tick");
+        logger.setLevel(Level.DEBUG);
+        events = new ListAppender<>();
+        events.start();
+        logger.addAppender(events);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(events);
+        logger.setLevel(null);
+    }
+
+    private List<String> messages() {
+        List<String> messages = new ArrayList<>();
+        for (ILoggingEvent event : events.list) {
+            messages.add(event.getFormattedMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * Tests that only the pets whose id is a multiple of the rate are logged.
+     */
+    @Test
+    void testSample() {
+        TickLog log = new TickLog(10);
+        log.begin(3);
+        for (int x = 1; x <= 100; x++) {
+            CatModel cat = new CatModel("Fuzzy", 2);
+            cat.setId(x);
+            log.sample(cat);
+        }
+        assertEquals(10, events.list.size()); // Check one pet in ten
+        assertEquals("pet tick=3 id=10 type=CAT health=50 happiness=40 hunger=20 thirst=10", messages().get(0));
+    }
+
+    /**
+     * Tests that a rate of 0 logs no pets.
+     */
+    @Test
+    void testSampleOff() {
+        TickLog log = new TickLog(0);
+        RoboticDogModel dog = new RoboticDogModel("Rex", 3);
+        dog.setId(10);
+        log.sample(dog);
+        assertTrue(events.list.isEmpty());
+    }
+
+    /**
+     * Tests that a death is logged as one compact line.
+     */
+    @Test
+    void testDeath() {
+        TickLog log = new TickLog(0);
+        RoboticCatModel cat = new RoboticCatModel("Moon", 4);
+        cat.setId(7);
+        cat.setPowerLevel(0);
+        log.death(12, cat);
+        assertEquals(List.of("death tick=12 id=7 type=ROBOTIC_CAT cause=NoPower age=4"), messages());
+    }
+}